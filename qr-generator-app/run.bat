@@ -13,7 +13,7 @@ if not exist "%OUT%" mkdir "%OUT%"
 if errorlevel 1 goto :error
 
 echo === Ejecutando app ===
-"%JAVA_BIN%\java.exe" -cp "%OUT%;%LIBS%" app.QrGeneratorApp
+"%JAVA_BIN%\java.exe" -cp "%OUT%;%LIBS%" app.QrGeneratorApp %*
 if errorlevel 1 goto :error
 
 goto :eof
@@ -8,8 +8,18 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
 import javax.imageio.ImageIO;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -43,16 +53,26 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.concurrent.CountDownLatch;
 import java.awt.GraphicsEnvironment;
 import java.nio.file.InvalidPathException;
@@ -66,32 +86,109 @@ public final class QrGeneratorApp {
     private static final int SLIDE_DELAY_MS = 1250;
     private static final int MAX_FILE_LABEL_CHARS = 70;
     private static final String WARMUP_QR_PAYLOAD = "__WARMUP__";
-    private static final String FILE_PAYLOAD_PREFIX = "QRFILE1|";
+    private static final String FILE_PAYLOAD_PREFIX = "QRFILE2|";
+    private static final String DELTA_PAYLOAD_PREFIX = "QRDELTA1|";
+    private static final String CHUNK_PREFIX = "QRC1|";
     private static final String DEFAULT_FILE_NAME = "payload.bin";
     private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
     private static final String PREF_LAST_CHOOSER_DIR = "lastChooserDirectory";
     private static final Preferences APP_PREFS = Preferences.userNodeForPackage(QrGeneratorApp.class);
+    private static final SlideLayout[] SLIDE_LAYOUTS = {
+            new SlideLayout(1, 1),
+            new SlideLayout(2, 1),
+            new SlideLayout(2, 2),
+            new SlideLayout(3, 2),
+            new SlideLayout(3, 3)
+    };
     private static QrSlideshow currentSlideshow;
     private static Path selectedFile;
     private static Path lastChooserDirectory = loadLastChooserDirectory();
     private static String selectedFilePayload;
+    private static String selectedFilePayloadError;
+    private static Path selectedBaseFile;
+    private static SwingWorker<String, Void> payloadWorker;
 
     private QrGeneratorApp() {
     }
 
     public static void main(String[] args) {
+        Recording recording;
+        try {
+            recording = startRecording(args);
+        } catch (IllegalArgumentException | IOException | ParseException ex) {
+            System.err.println("[generador] Error: " + ex.getMessage());
+            System.exit(1);
+            return;
+        }
         CountDownLatch shutdownLatch = new CountDownLatch(1);
         SwingUtilities.invokeLater(() -> showUi(shutdownLatch));
         waitUntilClosed(shutdownLatch);
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+            System.out.println("[generador] Grabacion JFR escrita en " + recording.getDestination().toAbsolutePath());
+        }
     }
 
-    private static BufferedImage generateQr(String text, int width, int height) throws WriterException {
+    private static Recording startRecording(String[] args) throws IOException, ParseException {
+        Path destination = null;
+        for (int i = 0; i < args.length; i++) {
+            if (!"--jfr".equals(args[i])) {
+                throw new IllegalArgumentException("Bandera no soportada: " + args[i]);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta valor para --jfr");
+            }
+            destination = Path.of(args[++i]);
+        }
+        if (destination == null) {
+            return null;
+        }
+        Path parent = destination.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("qr-generator-app");
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+        System.out.println("[generador] Grabando JFR en " + destination.toAbsolutePath());
+        return recording;
+    }
+
+    static BufferedImage generateQr(String text, int width, int height) throws WriterException {
+        return MatrixToImageWriter.toBufferedImage(encodeQr(text, width, height));
+    }
+
+    private static BufferedImage generateChannelQr(List<String> texts, int size) throws WriterException {
+        int[] pixels = new int[size * size];
+        Arrays.fill(pixels, 0x00FFFFFF);
+        for (int channel = 0; channel < texts.size() && channel < 3; channel++) {
+            BitMatrix matrix = encodeQr(texts.get(channel), size, size);
+            int clearMask = ~(0xFF << (16 - channel * 8));
+            int width = Math.min(size, matrix.getWidth());
+            int height = Math.min(size, matrix.getHeight());
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (matrix.get(x, y)) {
+                        pixels[y * size + x] &= clearMask;
+                    }
+                }
+            }
+        }
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, size, size, pixels, 0, size);
+        return image;
+    }
+
+    private static BitMatrix encodeQr(String text, int width, int height) throws WriterException {
         QRCodeWriter writer = new QRCodeWriter();
         Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
         hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
         hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
-        BitMatrix matrix = writer.encode(text, BarcodeFormat.QR_CODE, width, height, hints);
-        return MatrixToImageWriter.toBufferedImage(matrix);
+        return writer.encode(text, BarcodeFormat.QR_CODE, width, height, hints);
     }
 
     private static void showUi(CountDownLatch shutdownLatch) {
@@ -117,6 +214,9 @@ public final class QrGeneratorApp {
         JButton chooseFileButton = new JButton("Seleccionar archivo");
         chooseFileButton.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         chooseFileButton.setFocusPainted(false);
+        JCheckBox deltaCheck = new JCheckBox("Delta");
+        deltaCheck.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        deltaCheck.setToolTipText("Enviar solo los bloques que cambiaron respecto a un archivo que el lector ya tiene");
         JLabel fileLabel = new JLabel();
         fileLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         setSelectedFileLabel(fileLabel, selectedFile);
@@ -124,15 +224,45 @@ public final class QrGeneratorApp {
         JButton generateButton = new JButton("Generar QR");
         generateButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
         generateButton.setFocusPainted(false);
-        generateButton.addActionListener(event -> onGenerate(frame, generateButton, textArea.getText(), sourceText.isSelected()));
+        JComboBox<SlideLayout> layoutCombo = new JComboBox<>(SLIDE_LAYOUTS);
+        layoutCombo.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        layoutCombo.setToolTipText("QRs por slide (columnas x filas)");
+        layoutCombo.setMaximumSize(layoutCombo.getPreferredSize());
+        JCheckBox colorChannelsCheck = new JCheckBox("RGB x3");
+        colorChannelsCheck.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        colorChannelsCheck.setToolTipText("Tres QRs por celda, uno en cada canal R, G y B");
+        generateButton.addActionListener(event -> {
+            SlideLayout layout = (SlideLayout) layoutCombo.getSelectedItem();
+            if (layout != null && colorChannelsCheck.isSelected()) {
+                layout = layout.withColorChannels();
+            }
+            onGenerate(frame, generateButton, textArea.getText(), sourceText.isSelected(), layout);
+        });
 
         JLabel qrCountLabel = new JLabel("Total QRs: 0");
         qrCountLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         qrCountLabel.setBorder(BorderFactory.createEmptyBorder(6, 12, 6, 12));
 
+        Runnable refreshQrCount = () -> updateQrCountLabel(qrCountLabel, textArea, sourceText.isSelected());
         chooseFileButton.addActionListener(event -> {
-            chooseFile(frame, fileLabel, sourceFile);
-            updateQrCountLabel(qrCountLabel, textArea, sourceText.isSelected());
+            if (chooseFile(frame, fileLabel, sourceFile)) {
+                refreshFilePayload(frame, generateButton, qrCountLabel, refreshQrCount);
+            }
+        });
+        deltaCheck.addActionListener(event -> {
+            if (deltaCheck.isSelected()) {
+                Path base = chooseBaseFile(frame);
+                if (base == null) {
+                    deltaCheck.setSelected(false);
+                    return;
+                }
+                selectedBaseFile = base;
+                deltaCheck.setToolTipText("Base: " + base.toAbsolutePath());
+            } else {
+                selectedBaseFile = null;
+                deltaCheck.setToolTipText("Enviar solo los bloques que cambiaron respecto a un archivo que el lector ya tiene");
+            }
+            refreshFilePayload(frame, generateButton, qrCountLabel, refreshQrCount);
         });
 
         textArea.getDocument().addDocumentListener(new DocumentListener() {
@@ -171,7 +301,15 @@ public final class QrGeneratorApp {
         sourceRow.add(sourceText);
         sourceRow.add(Box.createHorizontalStrut(12));
         sourceRow.add(sourceFile);
+        sourceRow.add(Box.createHorizontalStrut(12));
+        sourceRow.add(new JLabel("Mosaico:"));
+        sourceRow.add(Box.createHorizontalStrut(4));
+        sourceRow.add(layoutCombo);
+        sourceRow.add(Box.createHorizontalStrut(8));
+        sourceRow.add(colorChannelsCheck);
         sourceRow.add(Box.createHorizontalGlue());
+        sourceRow.add(deltaCheck);
+        sourceRow.add(Box.createHorizontalStrut(8));
         sourceRow.add(chooseFileButton);
         sourceRow.setAlignmentX(Component.LEFT_ALIGNMENT);
 
@@ -201,7 +339,16 @@ public final class QrGeneratorApp {
         });
     }
 
-    private static void onGenerate(JFrame parent, JButton generateButton, String text, boolean useTextSource) {
+    private static void onGenerate(
+            JFrame parent,
+            JButton generateButton,
+            String text,
+            boolean useTextSource,
+            SlideLayout layout
+    ) {
+        SlideLayout slideLayout = layout == null ? SLIDE_LAYOUTS[0] : layout;
+        PayloadBuiltEvent payloadEvent = new PayloadBuiltEvent();
+        payloadEvent.begin();
         String raw;
         if (useTextSource) {
             raw = text == null ? "" : text;
@@ -216,18 +363,16 @@ public final class QrGeneratorApp {
                         JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            if (selectedFilePayload != null) {
-                raw = selectedFilePayload;
-            } else {
-                try {
-                    byte[] bytes = Files.readAllBytes(selectedFile);
-                    raw = buildFilePayload(selectedFile, bytes);
-                } catch (IOException ex) {
-                    JOptionPane.showMessageDialog(parent, "No se pudo leer el archivo.", "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            if (payloadWorker != null) {
+                return;
             }
+            if (selectedFilePayload == null) {
+                JOptionPane.showMessageDialog(parent, "No se pudo leer el archivo"
+                                + (selectedFilePayloadError == null ? "" : ": " + selectedFilePayloadError)
+                                + ". Vuelve a seleccionarlo.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            raw = selectedFilePayload;
         }
 
         if (currentSlideshow != null) {
@@ -236,6 +381,14 @@ public final class QrGeneratorApp {
         }
 
         List<String> chunks = buildSlideshowChunks(raw, CHUNK_SIZE);
+        payloadEvent.end();
+        if (payloadEvent.shouldCommit()) {
+            payloadEvent.source = useTextSource ? "texto" : "archivo";
+            payloadEvent.payloadChars = raw.length();
+            payloadEvent.chunks = chunks.size();
+            payloadEvent.chunkSize = CHUNK_SIZE;
+            payloadEvent.commit();
+        }
         if (chunks.isEmpty()) {
             JOptionPane.showMessageDialog(parent, "No hay contenido para generar QR.", "Sin contenido",
                     JOptionPane.WARNING_MESSAGE);
@@ -245,8 +398,8 @@ public final class QrGeneratorApp {
         Rectangle bounds = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
         int dataQrCount = Math.max(0, chunks.size() - 1);
         System.out.println(String.format(Locale.US,
-                "[generador] Inicio. QRs a generar: %d (datos=%d, warmup=%d), delay=%dms",
-                chunks.size(), dataQrCount, chunks.size() - dataQrCount, SLIDE_DELAY_MS));
+                "[generador] Inicio. QRs a generar: %d (datos=%d, warmup=%d), mosaico=%s, delay=%dms",
+                chunks.size(), dataQrCount, chunks.size() - dataQrCount, slideLayout, SLIDE_DELAY_MS));
 
         GenerationProgressDialog progressDialog = new GenerationProgressDialog(parent, chunks.size());
         progressDialog.update(0, chunks.size(), "Preparando...");
@@ -255,7 +408,7 @@ public final class QrGeneratorApp {
         SwingWorker<PreRenderedSlides, GenerationUpdate> worker = new SwingWorker<>() {
             @Override
             protected PreRenderedSlides doInBackground() throws Exception {
-                return QrSlideshow.preRenderSlides(bounds, chunks, (done, total, message) -> {
+                return QrSlideshow.preRenderSlides(bounds, chunks, slideLayout, (done, total, message) -> {
                     publish(new GenerationUpdate(done, total, message));
                 });
             }
@@ -276,15 +429,15 @@ public final class QrGeneratorApp {
                     PreRenderedSlides preRenderedSlides = get();
                     progressDialog.close();
                     try {
-                        currentSlideshow = new QrSlideshow(bounds, preRenderedSlides);
+                        currentSlideshow = new QrSlideshow(bounds, slideLayout, preRenderedSlides);
                         currentSlideshow.start();
                     } catch (RuntimeException ex) {
                         deleteRecursively(preRenderedSlides.tempDir);
                         throw ex;
                     }
                     System.out.println(String.format(Locale.US,
-                            "[generador] Slides listos. Esperando 'Continuar'. Slides=%d, intervalo=%dms",
-                            chunks.size(), SLIDE_DELAY_MS));
+                            "[generador] Slides listos. Esperando 'Continuar'. Slides=%d, QRs=%d, intervalo=%dms",
+                            preRenderedSlides.slides.size(), chunks.size(), SLIDE_DELAY_MS));
                 } catch (Exception ex) {
                     progressDialog.close();
                     String message = extractErrorMessage(ex);
@@ -299,7 +452,7 @@ public final class QrGeneratorApp {
         progressDialog.showDialog();
     }
 
-    private static void chooseFile(JFrame parent, JLabel fileLabel, JRadioButton sourceFile) {
+    private static boolean chooseFile(JFrame parent, JLabel fileLabel, JRadioButton sourceFile) {
         JFileChooser chooser;
         if (lastChooserDirectory != null && Files.isDirectory(lastChooserDirectory)) {
             chooser = new JFileChooser(lastChooserDirectory.toFile());
@@ -319,15 +472,90 @@ public final class QrGeneratorApp {
             }
             setSelectedFileLabel(fileLabel, selectedFile);
             sourceFile.setSelected(true);
-            try {
-                byte[] bytes = Files.readAllBytes(selectedFile);
-                selectedFilePayload = buildFilePayload(selectedFile, bytes);
-            } catch (IOException ex) {
-                selectedFilePayload = null;
-                JOptionPane.showMessageDialog(parent, "No se pudo leer el archivo.", "Error",
-                        JOptionPane.ERROR_MESSAGE);
+            return true;
+        }
+        return false;
+    }
+
+    private static Path chooseBaseFile(JFrame parent) {
+        JFileChooser chooser;
+        if (lastChooserDirectory != null && Files.isDirectory(lastChooserDirectory)) {
+            chooser = new JFileChooser(lastChooserDirectory.toFile());
+        } else {
+            chooser = new JFileChooser();
+        }
+        chooser.setDialogTitle("Archivo base (version que el lector ya tiene)");
+        chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        chooser.setAcceptAllFileFilterUsed(true);
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        return chooser.getSelectedFile().toPath();
+    }
+
+    /**
+     * Leer archivos grandes, hashear bloques y comprimir el delta corre fuera del EDT, igual que la
+     * pre-generacion de slides. Si el usuario cambia de archivo o de base antes de terminar, el
+     * resultado viejo se descarta.
+     */
+    private static void refreshFilePayload(JFrame parent, JButton generateButton, JLabel qrCountLabel, Runnable onReady) {
+        selectedFilePayload = null;
+        selectedFilePayloadError = null;
+        if (selectedFile == null) {
+            payloadWorker = null;
+            generateButton.setEnabled(true);
+            onReady.run();
+            return;
+        }
+        Path file = selectedFile;
+        Path base = selectedBaseFile;
+        generateButton.setEnabled(false);
+        qrCountLabel.setText(base == null ? "Total QRs: calculando..." : "Total QRs: calculando delta...");
+        SwingWorker<String, Void> worker = new SwingWorker<>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return buildSelectedFilePayload(file, base);
+            }
+
+            @Override
+            protected void done() {
+                if (payloadWorker != this) {
+                    return;
+                }
+                payloadWorker = null;
+                generateButton.setEnabled(true);
+                try {
+                    selectedFilePayload = get();
+                } catch (Exception ex) {
+                    selectedFilePayload = null;
+                    selectedFilePayloadError = extractErrorMessage(ex);
+                    System.out.println("[generador] Error: " + selectedFilePayloadError);
+                    JOptionPane.showMessageDialog(parent, "No se pudo leer el archivo.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                onReady.run();
             }
+        };
+        payloadWorker = worker;
+        worker.execute();
+    }
+
+    /** Con base elegida se manda el delta, salvo que no salga mas corto que el archivo completo. */
+    private static String buildSelectedFilePayload(Path file, Path base) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        String full = buildFilePayload(file, bytes);
+        if (base == null) {
+            return full;
         }
+        String delta = buildDeltaPayload(file, bytes, Files.readAllBytes(base));
+        if (delta.length() >= full.length()) {
+            System.out.println("[generador] Delta no reduce el payload contra " + base.getFileName()
+                    + "; se envia el archivo completo");
+            return full;
+        }
+        System.out.println(String.format(Locale.US, "[generador] Delta contra %s: %d QRs en lugar de %d",
+                base.getFileName(), countChunks(delta), countChunks(full)));
+        return delta;
     }
 
     private static void updateQrCountLabel(JLabel label, JTextArea textArea, boolean useTextSource) {
@@ -341,14 +569,29 @@ public final class QrGeneratorApp {
         label.setText("Total QRs: " + count);
     }
 
-    private static String buildFilePayload(Path file, byte[] bytes) throws IOException {
+    static String buildFilePayload(Path file, byte[] bytes) throws IOException {
         String mimeType = resolveContentType(file);
         Path fileNamePath = file == null ? null : file.getFileName();
         String fileName = fileNamePath == null ? DEFAULT_FILE_NAME : fileNamePath.toString();
         String encodedFileName = Base64.getUrlEncoder().withoutPadding()
                 .encodeToString(fileName.getBytes(StandardCharsets.UTF_8));
         String encodedData = Base64.getEncoder().encodeToString(bytes);
-        return FILE_PAYLOAD_PREFIX + mimeType + "|" + encodedFileName + "|" + encodedData;
+        return FILE_PAYLOAD_PREFIX + mimeType + "|" + encodedFileName + "|" + sha256Hex(bytes) + "|" + encodedData;
+    }
+
+    /** QRDELTA1|mime|nombre|sha256 nuevo|sha256 base|Base64 del manifiesto de copias y literales. */
+    static String buildDeltaPayload(Path file, byte[] bytes, byte[] baseBytes) throws IOException {
+        String mimeType = resolveContentType(file);
+        Path fileNamePath = file == null ? null : file.getFileName();
+        String fileName = fileNamePath == null ? DEFAULT_FILE_NAME : fileNamePath.toString();
+        String encodedFileName = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(fileName.getBytes(StandardCharsets.UTF_8));
+        DeltaEncoder.Delta delta = DeltaEncoder.encode(bytes, baseBytes);
+        System.out.println(String.format(Locale.US,
+                "[generador] Delta: %d bloques, %d reutilizados del base, %d bytes literales de %d (manifiesto %d bytes)",
+                delta.blocks, delta.reusedBlocks, delta.literalBytes, bytes.length, delta.manifest.length));
+        return DELTA_PAYLOAD_PREFIX + mimeType + "|" + encodedFileName + "|" + sha256Hex(bytes) + "|"
+                + sha256Hex(baseBytes) + "|" + Base64.getEncoder().encodeToString(delta.manifest);
     }
 
     private static String resolveContentType(Path file) throws IOException {
@@ -417,11 +660,20 @@ public final class QrGeneratorApp {
         return Math.max(1, Math.min(bounds.width, bounds.height));
     }
 
-    private static Rectangle centeredSquareBounds(Rectangle bounds) {
-        int side = squareSizeFor(bounds);
-        int x = bounds.x + ((bounds.width - side) / 2);
-        int y = bounds.y + ((bounds.height - side) / 2);
-        return new Rectangle(x, y, side, side);
+    private static int tileSizeFor(Rectangle bounds, SlideLayout layout) {
+        if (layout.columns == 1 && layout.rows == 1) {
+            return squareSizeFor(bounds);
+        }
+        return Math.max(1, Math.min(bounds.width / layout.columns, bounds.height / layout.rows));
+    }
+
+    private static Rectangle centeredSlideBounds(Rectangle bounds, SlideLayout layout) {
+        int tile = tileSizeFor(bounds, layout);
+        int width = tile * layout.columns;
+        int height = tile * layout.rows;
+        int x = bounds.x + ((bounds.width - width) / 2);
+        int y = bounds.y + ((bounds.height - height) / 2);
+        return new Rectangle(x, y, width, height);
     }
 
     private static Path loadLastChooserDirectory() {
@@ -459,14 +711,36 @@ public final class QrGeneratorApp {
         return chunks;
     }
 
-    private static List<String> buildSlideshowChunks(String text, int maxCodePoints) {
+    static List<String> buildSlideshowChunks(String text, int maxCodePoints) {
         List<String> dataChunks = splitIntoChunks(text, maxCodePoints);
         List<String> slideshowChunks = new ArrayList<>(dataChunks.size() + 1);
         slideshowChunks.add(WARMUP_QR_PAYLOAD);
-        slideshowChunks.addAll(dataChunks);
+        for (int i = 0; i < dataChunks.size(); i++) {
+            slideshowChunks.add(frameChunk(i + 1, dataChunks.size(), dataChunks.get(i)));
+        }
         return slideshowChunks;
     }
 
+    private static String frameChunk(int index, int total, String data) {
+        String position = index + "/" + total;
+        CRC32C crc = new CRC32C();
+        crc.update((position + "|" + data).getBytes(StandardCharsets.UTF_8));
+        return CHUNK_PREFIX + position + "|" + String.format(Locale.US, "%08x", crc.getValue()) + "|" + data;
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte value : digest) {
+                hex.append(String.format(Locale.US, "%02x", value & 0xFF));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
     private static int countChunks(String text) {
         if (text == null || text.isEmpty()) {
             return 0;
@@ -557,8 +831,9 @@ public final class QrGeneratorApp {
         private BufferedImage currentImage;
         private boolean slidesDeleted;
         private boolean playbackStarted;
+        private long playbackStartNanos;
 
-        private QrSlideshow(Rectangle bounds, PreRenderedSlides preRenderedSlides) {
+        private QrSlideshow(Rectangle bounds, SlideLayout layout, PreRenderedSlides preRenderedSlides) {
             this.index = 0;
             this.slidesDeleted = false;
             this.playbackStarted = false;
@@ -610,7 +885,7 @@ public final class QrGeneratorApp {
                 }
             });
 
-            frame.setBounds(centeredSquareBounds(bounds));
+            frame.setBounds(centeredSlideBounds(bounds, layout));
         }
 
         private void start() {
@@ -629,6 +904,8 @@ public final class QrGeneratorApp {
                     "[generador] Reproduccion iniciada. Slides=%d, intervalo=%dms",
                     slides.size(), SLIDE_DELAY_MS));
 
+            playbackStartNanos = System.nanoTime();
+            commitSlideDisplayed();
             if (slides.size() > 1) {
                 timer.start();
             }
@@ -653,6 +930,20 @@ public final class QrGeneratorApp {
                 return;
             }
             updateImage();
+            commitSlideDisplayed();
+        }
+
+        private void commitSlideDisplayed() {
+            SlideDisplayedEvent event = new SlideDisplayedEvent();
+            if (event.shouldCommit()) {
+                double plannedMs = (double) index * SLIDE_DELAY_MS;
+                double actualMs = (System.nanoTime() - playbackStartNanos) / 1_000_000.0;
+                event.slide = index;
+                event.plannedMs = plannedMs;
+                event.actualMs = actualMs;
+                event.lagMs = actualMs - plannedMs;
+                event.commit();
+            }
         }
 
         private void updateImage() {
@@ -672,21 +963,29 @@ public final class QrGeneratorApp {
             }
         }
 
-        private static String badgeTextFor(boolean hasWarmup, int slideIndex) {
-            if (hasWarmup && slideIndex == 0) {
+        private static String badgeTextFor(boolean hasWarmup, int firstChunk, int lastChunk) {
+            if (hasWarmup && firstChunk == 0) {
                 return "W";
             }
-            int realIndex = hasWarmup ? slideIndex - 1 : slideIndex;
-            return Integer.toString(Math.max(1, realIndex + 1));
+            int realFirst = hasWarmup ? firstChunk - 1 : firstChunk;
+            int realLast = hasWarmup ? lastChunk - 1 : lastChunk;
+            if (realLast > realFirst) {
+                return (realFirst + 1) + "-" + (realLast + 1);
+            }
+            return Integer.toString(Math.max(1, realFirst + 1));
         }
 
-        private static String titleFor(boolean hasWarmup, int realChunkCount, int slideIndex) {
-            if (hasWarmup && slideIndex == 0) {
+        private static String titleFor(boolean hasWarmup, int realChunkCount, int firstChunk, int lastChunk) {
+            if (hasWarmup && firstChunk == 0) {
                 return "QR Warmup";
             }
-            int realIndex = hasWarmup ? slideIndex - 1 : slideIndex;
+            int realFirst = hasWarmup ? firstChunk - 1 : firstChunk;
+            int realLast = hasWarmup ? lastChunk - 1 : lastChunk;
+            if (realChunkCount > 0 && realFirst == realLast) {
+                return "QR " + (realFirst + 1) + "/" + realChunkCount;
+            }
             if (realChunkCount > 0) {
-                return "QR " + (realIndex + 1) + "/" + realChunkCount;
+                return "QR " + (realFirst + 1) + "-" + (realLast + 1) + "/" + realChunkCount;
             }
             return "QR";
         }
@@ -697,8 +996,10 @@ public final class QrGeneratorApp {
             }
             int width = Math.max(1, label.getWidth());
             int height = Math.max(1, label.getHeight());
-            int side = Math.max(1, Math.min(width, height));
-            Image scaled = currentImage.getScaledInstance(side, side, Image.SCALE_SMOOTH);
+            double scale = Math.min(width / (double) currentImage.getWidth(), height / (double) currentImage.getHeight());
+            int targetWidth = Math.max(1, (int) Math.floor(currentImage.getWidth() * scale));
+            int targetHeight = Math.max(1, (int) Math.floor(currentImage.getHeight() * scale));
+            Image scaled = currentImage.getScaledInstance(targetWidth, targetHeight, Image.SCALE_SMOOTH);
             label.setIcon(new ImageIcon(scaled));
             label.revalidate();
             label.repaint();
@@ -707,32 +1008,61 @@ public final class QrGeneratorApp {
         private static PreRenderedSlides preRenderSlides(
                 Rectangle bounds,
                 List<String> chunks,
+                SlideLayout layout,
                 ProgressReporter reporter
         ) throws WriterException, IOException {
             boolean hasWarmup = !chunks.isEmpty() && WARMUP_QR_PAYLOAD.equals(chunks.get(0));
             int realChunkCount = Math.max(0, chunks.size() - (hasWarmup ? 1 : 0));
-            int slideSize = squareSizeFor(bounds);
+            int tileSize = tileSizeFor(bounds, layout);
             Path tempDir = Files.createTempDirectory("qr-generator-slides-");
-            List<SlideAsset> renderedSlides = new ArrayList<>(chunks.size());
+            List<SlideAsset> renderedSlides = new ArrayList<>();
             try {
                 System.out.println("[generador] Carpeta temporal: " + tempDir.toAbsolutePath());
                 if (reporter != null) {
                     reporter.onProgress(0, chunks.size(), "Generando QR 0/" + chunks.size());
                 }
-                for (int i = 0; i < chunks.size(); i++) {
-                    BufferedImage qr = generateQr(chunks.get(i), slideSize, slideSize);
-                    drawQrOverlay(qr, badgeTextFor(hasWarmup, i));
-                    Path output = tempDir.resolve(String.format("slide_%04d.png", i));
-                    if (!ImageIO.write(qr, "png", output.toFile())) {
+                int done = 0;
+                int slideIndex = 0;
+                while (done < chunks.size()) {
+                    int slideCapacity = hasWarmup && done == 0 ? 1 : layout.capacity();
+                    int first = done;
+                    int last = Math.min(chunks.size(), first + slideCapacity) - 1;
+                    SlideRenderedEvent renderEvent = new SlideRenderedEvent();
+                    renderEvent.begin();
+                    BufferedImage slide = newBlankSlide(tileSize * layout.columns, tileSize * layout.rows);
+                    for (int tile = 0; first + tile * layout.channels <= last; tile++) {
+                        int tileFirst = first + tile * layout.channels;
+                        int tileLast = Math.min(last, tileFirst + layout.channels - 1);
+                        BufferedImage qr;
+                        if (layout.channels == 1 || (hasWarmup && tileFirst == 0)) {
+                            qr = generateQr(chunks.get(tileFirst), tileSize, tileSize);
+                        } else {
+                            qr = generateChannelQr(chunks.subList(tileFirst, tileLast + 1), tileSize);
+                        }
+                        drawQrOverlay(qr, badgeTextFor(hasWarmup, tileFirst, tileLast));
+                        drawTile(slide, qr, (tile % layout.columns) * tileSize, (tile / layout.columns) * tileSize);
+                        done = tileLast + 1;
+                        String msg = String.format(Locale.US, "Generando QR %d/%d", done, chunks.size());
+                        if (reporter != null) {
+                            reporter.onProgress(done, chunks.size(), msg);
+                        }
+                        System.out.println(String.format(Locale.US, "[generador] %s", msg));
+                    }
+                    Path output = tempDir.resolve(String.format("slide_%04d.png", slideIndex));
+                    if (!ImageIO.write(slide, "png", output.toFile())) {
                         throw new IOException("No se pudo escribir slide PNG: " + output.getFileName());
                     }
-                    renderedSlides.add(new SlideAsset(output, titleFor(hasWarmup, realChunkCount, i)));
-                    int done = i + 1;
-                    String msg = String.format(Locale.US, "Generando QR %d/%d", done, chunks.size());
-                    if (reporter != null) {
-                        reporter.onProgress(done, chunks.size(), msg);
+                    renderedSlides.add(new SlideAsset(output, titleFor(hasWarmup, realChunkCount, first, last)));
+                    renderEvent.end();
+                    if (renderEvent.shouldCommit()) {
+                        renderEvent.slide = slideIndex;
+                        renderEvent.qrCount = last - first + 1;
+                        renderEvent.layout = layout.toString();
+                        renderEvent.width = slide.getWidth();
+                        renderEvent.height = slide.getHeight();
+                        renderEvent.commit();
                     }
-                    System.out.println(String.format(Locale.US, "[generador] %s", msg));
+                    slideIndex++;
                 }
                 System.out.println("[generador] Pre-generacion completada.");
                 return new PreRenderedSlides(tempDir, renderedSlides);
@@ -752,6 +1082,254 @@ public final class QrGeneratorApp {
         }
     }
 
+    private static BufferedImage newBlankSlide(int width, int height) {
+        BufferedImage slide = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = slide.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, slide.getWidth(), slide.getHeight());
+        } finally {
+            g2d.dispose();
+        }
+        return slide;
+    }
+
+    private static void drawTile(BufferedImage slide, BufferedImage tile, int x, int y) {
+        Graphics2D g2d = slide.createGraphics();
+        try {
+            g2d.drawImage(tile, x, y, null);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    @Name("app.generator.PayloadBuilt")
+    @Label("Payload construido")
+    @Category({"QR Generator", "Payload"})
+    @StackTrace(false)
+    static final class PayloadBuiltEvent extends Event {
+        @Label("Origen")
+        String source;
+
+        @Label("Caracteres")
+        int payloadChars;
+
+        @Label("QRs")
+        int chunks;
+
+        @Label("Tamano de chunk")
+        int chunkSize;
+    }
+
+    @Name("app.generator.SlideRendered")
+    @Label("Slide renderizado")
+    @Category({"QR Generator", "Slides"})
+    @StackTrace(false)
+    static final class SlideRenderedEvent extends Event {
+        @Label("Slide")
+        int slide;
+
+        @Label("QRs")
+        int qrCount;
+
+        @Label("Mosaico")
+        String layout;
+
+        @Label("Ancho")
+        int width;
+
+        @Label("Alto")
+        int height;
+    }
+
+    @Name("app.generator.SlideDisplayed")
+    @Label("Slide mostrado")
+    @Category({"QR Generator", "Slides"})
+    @StackTrace(false)
+    static final class SlideDisplayedEvent extends Event {
+        @Label("Slide")
+        int slide;
+
+        @Label("Planeado (ms)")
+        double plannedMs;
+
+        @Label("Real (ms)")
+        double actualMs;
+
+        @Label("Retraso (ms)")
+        double lagMs;
+    }
+
+    private static final class SlideLayout {
+        private final int columns;
+        private final int rows;
+        private final int channels;
+
+        private SlideLayout(int columns, int rows) {
+            this(columns, rows, 1);
+        }
+
+        private SlideLayout(int columns, int rows, int channels) {
+            this.columns = columns;
+            this.rows = rows;
+            this.channels = channels;
+        }
+
+        private SlideLayout withColorChannels() {
+            return new SlideLayout(columns, rows, 3);
+        }
+
+        private int capacity() {
+            return columns * rows * channels;
+        }
+
+        @Override
+        public String toString() {
+            return channels > 1 ? columns + "x" + rows + " RGB" : columns + "x" + rows;
+        }
+    }
+
+    /**
+     * Bloques definidos por contenido (gear hash rodante, estilo FastCDC): un corte depende solo de los
+     * bytes cercanos, asi que una insercion en el archivo nuevo no desplaza los bloques que le siguen y
+     * estos se encuentran tal cual en el base.
+     */
+    private static final class DeltaEncoder {
+        private static final int MIN_BLOCK = 2 * 1024;
+        private static final int MAX_BLOCK = 64 * 1024;
+        private static final int AVERAGE_BLOCK_BITS = 13;
+        private static final long BOUNDARY_MASK = ((1L << AVERAGE_BLOCK_BITS) - 1) << (Long.SIZE - AVERAGE_BLOCK_BITS);
+        private static final int MANIFEST_VERSION = 1;
+        private static final int OP_COPY = 0;
+        private static final int OP_LITERAL = 1;
+        private static final long[] GEAR = gearTable();
+
+        private DeltaEncoder() {
+        }
+
+        static Delta encode(byte[] bytes, byte[] base) throws IOException {
+            Map<String, long[]> baseBlocks = new HashMap<>();
+            int offset = 0;
+            while (offset < base.length) {
+                int end = nextBoundary(base, offset);
+                baseBlocks.putIfAbsent(blockKey(base, offset, end), new long[]{offset, end - offset});
+                offset = end;
+            }
+
+            List<long[]> ops = new ArrayList<>();
+            int blocks = 0;
+            int reused = 0;
+            long literalBytes = 0;
+            offset = 0;
+            while (offset < bytes.length) {
+                int end = nextBoundary(bytes, offset);
+                blocks++;
+                long[] match = baseBlocks.get(blockKey(bytes, offset, end));
+                long[] last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+                if (match != null) {
+                    reused++;
+                    if (last != null && last[0] == OP_COPY && last[1] + last[2] == match[0]) {
+                        last[2] += match[1];
+                    } else {
+                        ops.add(new long[]{OP_COPY, match[0], match[1]});
+                    }
+                } else {
+                    literalBytes += end - offset;
+                    if (last != null && last[0] == OP_LITERAL && last[1] + last[2] == offset) {
+                        last[2] += end - offset;
+                    } else {
+                        ops.add(new long[]{OP_LITERAL, offset, end - offset});
+                    }
+                }
+                offset = end;
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DeflaterOutputStream manifest = new DeflaterOutputStream(buffer, deflater)) {
+                writeVarLong(manifest, MANIFEST_VERSION);
+                writeVarLong(manifest, bytes.length);
+                writeVarLong(manifest, base.length);
+                writeVarLong(manifest, ops.size());
+                for (long[] op : ops) {
+                    manifest.write((int) op[0]);
+                    if (op[0] == OP_COPY) {
+                        writeVarLong(manifest, op[1]);
+                        writeVarLong(manifest, op[2]);
+                    } else {
+                        writeVarLong(manifest, op[2]);
+                        manifest.write(bytes, (int) op[1], (int) op[2]);
+                    }
+                }
+            } finally {
+                deflater.end();
+            }
+            return new Delta(buffer.toByteArray(), blocks, reused, literalBytes);
+        }
+
+        private static int nextBoundary(byte[] data, int start) {
+            int limit = Math.min(data.length, start + MAX_BLOCK);
+            if (limit - start <= MIN_BLOCK) {
+                return limit;
+            }
+            long hash = 0;
+            for (int i = start + MIN_BLOCK; i < limit; i++) {
+                hash = (hash << 1) + GEAR[data[i] & 0xFF];
+                if ((hash & BOUNDARY_MASK) == 0) {
+                    return i + 1;
+                }
+            }
+            return limit;
+        }
+
+        private static String blockKey(byte[] data, int start, int end) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(data, start, end - start);
+                return Base64.getEncoder().encodeToString(digest.digest());
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 no disponible", ex);
+            }
+        }
+
+        private static void writeVarLong(OutputStream output, long value) throws IOException {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                output.write((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            output.write((int) remaining);
+        }
+
+        /** Tabla fija (SplitMix64 con semilla constante): generador y bloques deben cortar siempre igual. */
+        private static long[] gearTable() {
+            long[] table = new long[256];
+            long state = 0x51A7E5EEDL;
+            for (int i = 0; i < table.length; i++) {
+                state += 0x9E3779B97F4A7C15L;
+                long z = state;
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                table[i] = z ^ (z >>> 31);
+            }
+            return table;
+        }
+
+        private static final class Delta {
+            private final byte[] manifest;
+            private final int blocks;
+            private final int reusedBlocks;
+            private final long literalBytes;
+
+            private Delta(byte[] manifest, int blocks, int reusedBlocks, long literalBytes) {
+                this.manifest = manifest;
+                this.blocks = blocks;
+                this.reusedBlocks = reusedBlocks;
+                this.literalBytes = literalBytes;
+            }
+        }
+    }
+
     private static final class PreRenderedSlides {
         private final Path tempDir;
         private final List<SlideAsset> slides;
@@ -787,7 +1365,7 @@ public final class QrGeneratorApp {
         }
     }
 
-    private static void drawQrOverlay(BufferedImage image, String badgeText) {
+    static void drawQrOverlay(BufferedImage image, String badgeText) {
         Graphics2D g2d = image.createGraphics();
         try {
             int minDim = Math.min(image.getWidth(), image.getHeight());
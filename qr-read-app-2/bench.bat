@@ -0,0 +1,80 @@
+@echo off
+setlocal
+
+set "SRC=src\main\java"
+set "BENCH_SRC=src\bench\java"
+set "GENERATOR_SRC=..\qr-generator-app\src\main\java"
+set "OUT=out\bench"
+set "LIBS=libs\*"
+set "MAIN_CLASS=app.ReaderBenchmarks"
+set "SOURCES_LIST=%OUT%\sources.list"
+set "JAVA_CMD="
+set "JAVAC_CMD="
+set "RESOLVED_JAVA_HOME="
+set "BENCH_ARGS="
+
+if /i "%~1"=="transfer" (
+  set "MAIN_CLASS=app.TransferBenchmark"
+  shift
+)
+if /i "%~1"=="channel" (
+  set "MAIN_CLASS=app.ChannelSimulator"
+  shift
+)
+:collect_args
+if "%~1"=="" goto :args_done
+set "BENCH_ARGS=%BENCH_ARGS% %1"
+shift
+goto :collect_args
+:args_done
+
+call :resolve_java
+if errorlevel 1 goto :error
+
+echo === Compilando benchmarks ===
+if not exist "%OUT%" mkdir "%OUT%"
+dir /b /s "%SRC%\app\*.java" "%BENCH_SRC%\app\*.java" "%GENERATOR_SRC%\app\*.java" > "%SOURCES_LIST%"
+if errorlevel 1 (
+  echo ERROR: No se encontraron fuentes Java en "%SRC%\app", "%BENCH_SRC%\app" o "%GENERATOR_SRC%\app".
+  goto :error
+)
+
+"%JAVAC_CMD%" -encoding UTF-8 -cp "%LIBS%" -d "%OUT%" @"%SOURCES_LIST%"
+if errorlevel 1 goto :error
+
+echo === Ejecutando benchmarks ===
+"%JAVA_CMD%" -Xms2g -Xmx2g -cp "%OUT%;%LIBS%" %MAIN_CLASS%%BENCH_ARGS%
+if errorlevel 1 goto :error
+
+goto :eof
+
+:resolve_java
+if defined JAVA_HOME (
+  if exist "%JAVA_HOME%\bin\java.exe" if exist "%JAVA_HOME%\bin\javac.exe" (
+    set "RESOLVED_JAVA_HOME=%JAVA_HOME%"
+  )
+)
+
+if not defined RESOLVED_JAVA_HOME (
+  for /f "delims=" %%D in ('dir /b /ad /o-n "C:\Program Files\Java\jdk-*" 2^>nul') do (
+    if not defined RESOLVED_JAVA_HOME set "RESOLVED_JAVA_HOME=C:\Program Files\Java\%%D"
+  )
+)
+
+if not defined RESOLVED_JAVA_HOME (
+  echo ERROR: No se encontro un JDK valido.
+  echo Configura JAVA_HOME apuntando al JDK. Ejemplo:
+  echo   set JAVA_HOME=C:\Program Files\Java\jdk-23
+  exit /b 1
+)
+
+set "JAVA_CMD=%RESOLVED_JAVA_HOME%\bin\java.exe"
+set "JAVAC_CMD=%RESOLVED_JAVA_HOME%\bin\javac.exe"
+echo Usando JDK: "%RESOLVED_JAVA_HOME%"
+exit /b 0
+
+:error
+echo.
+echo ERROR: Fallo la ejecucion de benchmarks. Revisa el output de arriba.
+pause
+exit /b 1
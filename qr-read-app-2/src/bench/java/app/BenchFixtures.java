@@ -0,0 +1,128 @@
+package app;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+final class BenchFixtures {
+    private static final long SEED = 0x51C0DEL;
+    private static final int CHUNK_CHARS = 2000;
+    private static final double QR_SIDE_RATIO = 0.9;
+
+    private BenchFixtures() {
+    }
+
+    static String chunkText() {
+        byte[] bytes = randomBytes(CHUNK_CHARS * 3 / 4, SEED);
+        return Base64.getEncoder().encodeToString(bytes).substring(0, CHUNK_CHARS);
+    }
+
+    static GrayFrame qrFrame(String text, int width, int height, int noiseSigma) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
+        hints.put(EncodeHintType.MARGIN, 1);
+        int side = (int) (Math.min(width, height) * QR_SIDE_RATIO);
+        BitMatrix matrix = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, side, side, hints);
+
+        byte[] gray = new byte[width * height];
+        int left = (width - matrix.getWidth()) / 2;
+        int top = (height - matrix.getHeight()) / 2;
+        Random random = new Random(SEED + width * 31L + noiseSigma);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int mx = x - left;
+                int my = y - top;
+                boolean dark = mx >= 0 && my >= 0 && mx < matrix.getWidth() && my < matrix.getHeight() && matrix.get(mx, my);
+                int value = dark ? 24 : 232;
+                if (noiseSigma > 0) {
+                    value += (int) Math.round(random.nextGaussian() * noiseSigma);
+                }
+                gray[y * width + x] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        return GrayFrame.wrap(gray, width, height);
+    }
+
+    static String filePayload(int size) {
+        byte[] bytes = randomBytes(size, SEED + size);
+        String name = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("bench.bin".getBytes(StandardCharsets.UTF_8));
+        return "QRFILE2|application/octet-stream|" + name + "|" + sha256Hex(bytes) + "|"
+                + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    static Path zipFile(Path dir, int size) throws IOException {
+        Path zip = dir.resolve(String.format(Locale.US, "bench-%d.zip", size));
+        byte[] bytes = randomBytes(size, SEED + size);
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zip))) {
+            int entrySize = Math.max(1, Math.min(size, 1 << 20));
+            for (int offset = 0, entry = 0; offset < size; offset += entrySize, entry++) {
+                output.putNextEntry(new ZipEntry(String.format(Locale.US, "datos/parte_%04d.bin", entry)));
+                output.write(bytes, offset, Math.min(entrySize, size - offset));
+                output.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    static int parseSize(String raw) {
+        String value = raw.trim().toLowerCase(Locale.ROOT);
+        int multiplier = 1;
+        if (value.endsWith("k")) {
+            multiplier = 1024;
+        } else if (value.endsWith("m")) {
+            multiplier = 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Integer.parseInt(value) * multiplier;
+    }
+
+    static String formatSize(int size) {
+        if (size >= 1024 * 1024 && size % (1024 * 1024) == 0) {
+            return size / (1024 * 1024) + "MB";
+        }
+        if (size >= 1024 && size % 1024 == 0) {
+            return size / 1024 + "KB";
+        }
+        return size + "B";
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte value : digest) {
+                hex.append(String.format(Locale.US, "%02x", value & 0xFF));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+}
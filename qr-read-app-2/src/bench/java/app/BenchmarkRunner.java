@@ -0,0 +1,141 @@
+package app;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+final class BenchmarkRunner {
+    private static volatile int sink;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+
+    BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+        this.threads = allocationCounter();
+    }
+
+    BenchmarkResult measure(String name, String parameters, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+        long operations = 0;
+        long elapsedNanos = 0;
+        long allocatedBytes = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            operations += runIteration(operation);
+            elapsedNanos += System.nanoTime() - start;
+            allocatedBytes += allocatedBytes() - allocatedBefore;
+        }
+        return new BenchmarkResult(name, parameters, operations, elapsedNanos, threads == null ? -1 : allocatedBytes);
+    }
+
+    private long runIteration(Operation operation) throws Exception {
+        long deadline = System.nanoTime() + iterationNanos;
+        long operations = 0;
+        do {
+            Object result = operation.run();
+            sink += result == null ? 0 : System.identityHashCode(result);
+            operations++;
+        } while (System.nanoTime() < deadline);
+        return operations;
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    @FunctionalInterface
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    static final class BenchmarkResult {
+        private final String name;
+        private final String parameters;
+        private final long operations;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+
+        private BenchmarkResult(String name, String parameters, long operations, long elapsedNanos, long allocatedBytes) {
+            this.name = name;
+            this.parameters = parameters;
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        String name() {
+            return name;
+        }
+
+        String parameters() {
+            return parameters;
+        }
+
+        double operationsPerSecond() {
+            return operations / (elapsedNanos / 1e9);
+        }
+
+        double millisPerOperation() {
+            return elapsedNanos / 1e6 / operations;
+        }
+
+        double allocationMegabytesPerSecond() {
+            return allocatedBytes < 0 ? Double.NaN : allocatedBytes / 1048576.0 / (elapsedNanos / 1e9);
+        }
+
+        double allocatedBytesPerOperation() {
+            return allocatedBytes < 0 ? Double.NaN : allocatedBytes / (double) operations;
+        }
+
+        String toTableRow() {
+            return String.format(Locale.US, "%-32s %-24s %12.2f %12.4f %12.1f %14.0f",
+                    name,
+                    parameters,
+                    operationsPerSecond(),
+                    millisPerOperation(),
+                    allocationMegabytesPerSecond(),
+                    allocatedBytesPerOperation());
+        }
+
+        String toCsvRow() {
+            return String.format(Locale.US, "%s,%s,%d,%.4f,%.6f,%.3f,%.0f",
+                    name,
+                    parameters,
+                    operations,
+                    operationsPerSecond(),
+                    millisPerOperation(),
+                    allocationMegabytesPerSecond(),
+                    allocatedBytesPerOperation());
+        }
+
+        static String tableHeader() {
+            return String.format(Locale.US, "%-32s %-24s %12s %12s %12s %14s",
+                    "benchmark", "parametros", "ops/s", "ms/op", "alloc MB/s", "alloc B/op");
+        }
+
+        static String csvHeader() {
+            return "benchmark,parametros,operaciones,ops_por_s,ms_por_op,alloc_mb_por_s,alloc_bytes_por_op";
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package app;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ChannelSimulator {
+    private static final long SEED = 0xC4A77E1L;
+    private static final int ANALYSIS_SIZE = 64;
+    private static final int ATTEMPTS_PER_SLIDE = 5;
+    private static final String WARMUP_QR_PAYLOAD = "__WARMUP__";
+
+    private final OpticalChannel.Settings channel;
+    private final int[] screen;
+    private final int[] camera;
+    private final int framesPerSlide;
+    private final double threshold;
+    private final int payloadSize;
+
+    private ChannelSimulator(
+            OpticalChannel.Settings channel,
+            int[] screen,
+            int[] camera,
+            int framesPerSlide,
+            double threshold,
+            int payloadSize
+    ) {
+        this.channel = channel;
+        this.screen = screen;
+        this.camera = camera;
+        this.framesPerSlide = framesPerSlide;
+        this.threshold = threshold;
+        this.payloadSize = payloadSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] chunkSizes = {500, 1000, 1500, 2000, 2500};
+        List<SlideLayout> layouts = List.of(SlideLayout.single(), SlideLayout.of(2, 1, false), SlideLayout.of(2, 2, false));
+        int[] screen = {1920, 1080};
+        int[] camera = {1280, 720};
+        double warp = 0.03;
+        double blur = 1.0;
+        double noise = 6.0;
+        double moire = 0.08;
+        double gamma = 1.2;
+        int jpeg = 70;
+        double screenFill = 0.85;
+        int framesPerSlide = 4;
+        double threshold = 0.10;
+        int payloadSize = 8 * 1024;
+        int trials = 3;
+        double target = 0.95;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--chunk-sizes":
+                    chunkSizes = Arrays.stream(args[++i].split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--tiles":
+                    layouts = parseLayouts(args[++i]);
+                    break;
+                case "--screen":
+                    screen = parseResolution(args[++i]);
+                    break;
+                case "--camera":
+                    camera = parseResolution(args[++i]);
+                    break;
+                case "--warp":
+                    warp = Double.parseDouble(args[++i]);
+                    break;
+                case "--blur":
+                    blur = Double.parseDouble(args[++i]);
+                    break;
+                case "--noise":
+                    noise = Double.parseDouble(args[++i]);
+                    break;
+                case "--moire":
+                    moire = Double.parseDouble(args[++i]);
+                    break;
+                case "--gamma":
+                    gamma = Double.parseDouble(args[++i]);
+                    break;
+                case "--jpeg":
+                    jpeg = Integer.parseInt(args[++i]);
+                    break;
+                case "--screen-fill":
+                    screenFill = Double.parseDouble(args[++i]);
+                    break;
+                case "--frames-per-slide":
+                    framesPerSlide = Integer.parseInt(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                case "--payload":
+                    payloadSize = BenchFixtures.parseSize(args[++i]);
+                    break;
+                case "--trials":
+                    trials = Integer.parseInt(args[++i]);
+                    break;
+                case "--target":
+                    target = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--csv":
+                    csv = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bandera no soportada: " + args[i]);
+            }
+        }
+        if (framesPerSlide < 2 || trials < 1 || threads < 1 || jpeg < 0 || jpeg > 100) {
+            throw new IllegalArgumentException("--frames-per-slide >= 2, --trials >= 1, --threads >= 1 y --jpeg entre 0 y 100.");
+        }
+
+        OpticalChannel.Settings settings = new OpticalChannel.Settings(warp, blur, noise, moire, gamma, jpeg, screenFill);
+        ChannelSimulator simulator = new ChannelSimulator(settings, screen, camera, framesPerSlide, threshold, payloadSize);
+        PrintStream console = System.out;
+        console.println(String.format(Locale.US,
+                "Canal simulado: pantalla %dx%d, camara %dx%d, %d frames por slide, payload %s, %d pruebas por caso, %d hilos",
+                screen[0], screen[1], camera[0], camera[1], framesPerSlide,
+                BenchFixtures.formatSize(payloadSize), trials, threads));
+        console.println("Degradaciones: " + settings);
+
+        List<SweepResult> results = new ArrayList<>();
+        for (SlideLayout layout : layouts) {
+            for (int chunkSize : chunkSizes) {
+                results.add(new SweepResult(chunkSize, layout, trials));
+            }
+        }
+        console.println(SweepResult.tableHeader());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            List<Future<TrialResult>> pending = new ArrayList<>();
+            for (SweepResult result : results) {
+                for (int trial = 0; trial < trials; trial++) {
+                    long seed = SEED + trial * 7919L;
+                    pending.add(pool.submit(() -> simulator.runTrial(result.chunkSize, result.layout, seed)));
+                }
+            }
+            int next = 0;
+            for (SweepResult result : results) {
+                for (int trial = 0; trial < trials; trial++) {
+                    result.add(pending.get(next++).get());
+                }
+                console.println(result.toTableRow());
+            }
+        } finally {
+            System.setOut(console);
+            pool.shutdownNow();
+        }
+
+        SweepResult best = null;
+        for (SweepResult result : results) {
+            if (result.successRate() >= target && (best == null || result.charsPerSlide() > best.charsPerSlide())) {
+                best = result;
+            }
+        }
+        if (best == null) {
+            System.out.println(String.format(Locale.US,
+                    "Ninguna combinacion llega al %.0f%% de exito con este canal.", target * 100.0));
+        } else {
+            System.out.println(String.format(Locale.US,
+                    "Recomendado para %.0f%% de exito: chunk %d, mosaico %s (%d px por modulo en pantalla, %d caracteres por slide).",
+                    target * 100.0, best.chunkSize, best.layout, best.modulePixels, best.charsPerSlide()));
+        }
+        if (csv != null) {
+            writeCsv(csv, results);
+            System.out.println("CSV: " + csv.toAbsolutePath());
+        }
+    }
+
+    private TrialResult runTrial(int chunkSize, SlideLayout layout, long seed) throws Exception {
+        long start = System.nanoTime();
+        byte[] payload = new byte[payloadSize];
+        new Random(seed).nextBytes(payload);
+        List<String> chunks = QrGeneratorApp.buildSlideshowChunks(
+                QrGeneratorApp.buildFilePayload(Path.of("simulado.bin"), payload), chunkSize);
+        int tileSize = Math.max(1, Math.min(screen[0] / layout.columns(), screen[1] / layout.rows()));
+        int modulePixels = tileSize / QrGeneratorApp.generateQr(chunks.get(chunks.size() - 1), 1, 1).getWidth();
+
+        OpticalChannel optics = new OpticalChannel(channel, camera[0], camera[1], screen[0], screen[1], seed);
+        FinderPatternPrefilter prefilter = new FinderPatternPrefilter(true, layout);
+        RoiTracker roi = new RoiTracker();
+        ChangeThreshold changes = ChangeThreshold.fixed(threshold);
+        ChunkIntegrity.Progress progress = new ChunkIntegrity.Progress();
+        FrameSignature previous = null;
+        byte[] lastCapture = null;
+        int attemptsLeft = 0;
+        List<String> best = List.of();
+        int frameNumber = 0;
+
+        for (int first = 0; first < chunks.size(); ) {
+            int capacity = first == 0 ? 1 : layout.codesPerSlide();
+            int last = Math.min(chunks.size(), first + capacity);
+            byte[] captured = optics.capture(renderScreen(chunks.subList(first, last), first, layout, tileSize), screen[0], screen[1]);
+            for (int i = 0; i < framesPerSlide; i++) {
+                byte[] exposed = optics.expose(i == 0 && lastCapture != null ? OpticalChannel.blend(lastCapture, captured) : captured);
+                GrayFrame frame = GrayFrame.wrap(exposed, camera[0], camera[1]);
+                frameNumber++;
+                FrameSignature signature = FrameChangeDetector.signatureOf(frame, ANALYSIS_SIZE);
+                if (previous == null || changes.isChange(signature.distance(previous))) {
+                    commit(best, progress);
+                    best = List.of();
+                    attemptsLeft = ATTEMPTS_PER_SLIDE;
+                }
+                previous = signature;
+                if (attemptsLeft == 0) {
+                    continue;
+                }
+                List<String> texts = QrFrameReader.decodeLiveFrame(frame, "sim#" + frameNumber, layout, roi, prefilter);
+                attemptsLeft--;
+                if (texts.size() > best.size()) {
+                    best = texts;
+                }
+                if (best.size() >= layout.codesPerSlide()) {
+                    commit(best, progress);
+                    best = List.of();
+                    attemptsLeft = 0;
+                }
+            }
+            lastCapture = captured;
+            first = last;
+        }
+        commit(best, progress);
+        return new TrialResult(
+                progress.complete(),
+                progress.received(),
+                chunks.size() - 1,
+                modulePixels,
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private static void commit(List<String> texts, ChunkIntegrity.Progress progress) {
+        for (String text : texts) {
+            progress.add(text.trim());
+        }
+    }
+
+    private byte[] renderScreen(List<String> slideChunks, int firstIndex, SlideLayout layout, int tileSize) throws Exception {
+        BufferedImage image = new BufferedImage(screen[0], screen[1], BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, screen[0], screen[1]);
+            int left = (screen[0] - tileSize * layout.columns()) / 2;
+            int top = (screen[1] - tileSize * layout.rows()) / 2;
+            for (int tile = 0; tile < slideChunks.size(); tile++) {
+                String text = slideChunks.get(tile);
+                BufferedImage qr = QrGeneratorApp.generateQr(text, tileSize, tileSize);
+                QrGeneratorApp.drawQrOverlay(qr, WARMUP_QR_PAYLOAD.equals(text) ? "W" : Integer.toString(firstIndex + tile));
+                g2d.drawImage(qr, left + (tile % layout.columns()) * tileSize, top + (tile / layout.columns()) * tileSize, null);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        byte[] gray = new byte[screen[0] * screen[1]];
+        int[] row = new int[screen[0]];
+        for (int y = 0; y < screen[1]; y++) {
+            image.getRGB(0, y, screen[0], 1, row, 0, screen[0]);
+            for (int x = 0; x < screen[0]; x++) {
+                int rgb = row[x];
+                gray[y * screen[0] + x] = (byte) ((((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8);
+            }
+        }
+        return gray;
+    }
+
+    private static List<SlideLayout> parseLayouts(String raw) {
+        List<SlideLayout> layouts = new ArrayList<>();
+        for (String value : raw.split(",")) {
+            String[] parts = value.trim().toLowerCase(Locale.ROOT).split("x");
+            layouts.add(SlideLayout.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), false));
+        }
+        return layouts;
+    }
+
+    private static int[] parseResolution(String raw) {
+        String[] parts = raw.toLowerCase(Locale.ROOT).split("x");
+        return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    private static void writeCsv(Path csv, List<SweepResult> results) throws IOException {
+        Path parent = csv.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            writer.println("chunk_size,tiles,module_px,chars_per_slide,trials,success_rate,chunk_rate,avg_trial_ms");
+            for (SweepResult result : results) {
+                writer.println(result.toCsvRow());
+            }
+        }
+    }
+
+    private static final class TrialResult {
+        private final boolean complete;
+        private final int receivedChunks;
+        private final int totalChunks;
+        private final int modulePixels;
+        private final long millis;
+
+        private TrialResult(boolean complete, int receivedChunks, int totalChunks, int modulePixels, long millis) {
+            this.complete = complete;
+            this.receivedChunks = receivedChunks;
+            this.totalChunks = totalChunks;
+            this.modulePixels = modulePixels;
+            this.millis = millis;
+        }
+    }
+
+    private static final class SweepResult {
+        private final int chunkSize;
+        private final SlideLayout layout;
+        private final int trials;
+        private int completed;
+        private long receivedChunks;
+        private long totalChunks;
+        private long millis;
+        private int modulePixels;
+
+        private SweepResult(int chunkSize, SlideLayout layout, int trials) {
+            this.chunkSize = chunkSize;
+            this.layout = layout;
+            this.trials = trials;
+        }
+
+        private void add(TrialResult trial) {
+            completed += trial.complete ? 1 : 0;
+            receivedChunks += trial.receivedChunks;
+            totalChunks += trial.totalChunks;
+            millis += trial.millis;
+            modulePixels = trial.modulePixels;
+        }
+
+        private double successRate() {
+            return completed / (double) trials;
+        }
+
+        private double chunkRate() {
+            return totalChunks == 0 ? 0.0 : receivedChunks / (double) totalChunks;
+        }
+
+        private int charsPerSlide() {
+            return chunkSize * layout.codesPerSlide();
+        }
+
+        private String toTableRow() {
+            return String.format(Locale.US,
+                    "%6d %6s %6d %8d | %7.1f%% %7.1f%% %9d",
+                    chunkSize, layout, modulePixels, charsPerSlide(),
+                    successRate() * 100.0, chunkRate() * 100.0, millis / trials);
+        }
+
+        private static String tableHeader() {
+            return String.format(Locale.US, "%6s %6s %6s %8s | %8s %8s %9s",
+                    "chunk", "tiles", "px/mod", "car/sld", "exito", "chunks", "ms/prueba");
+        }
+
+        private String toCsvRow() {
+            return String.format(Locale.US, "%d,%s,%d,%d,%d,%.4f,%.4f,%d",
+                    chunkSize, layout, modulePixels, charsPerSlide(), trials,
+                    successRate(), chunkRate(), millis / trials);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package app;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+final class OpticalChannel {
+    private static final int BACKGROUND = 36;
+
+    private final Settings settings;
+    private final int width;
+    private final int height;
+    private final Random random;
+    private final double[] homography;
+    private final int[] gammaTable = new int[256];
+    private final double moireAngle;
+    private final double moirePeriod;
+    private final double moirePhase;
+
+    OpticalChannel(Settings settings, int width, int height, int screenWidth, int screenHeight, long seed) {
+        this.settings = settings;
+        this.width = width;
+        this.height = height;
+        this.random = new Random(seed);
+        this.homography = cameraToScreen(screenWidth, screenHeight);
+        for (int value = 0; value < 256; value++) {
+            gammaTable[value] = (int) Math.round(255.0 * Math.pow(value / 255.0, settings.gamma));
+        }
+        this.moireAngle = random.nextDouble() * Math.PI;
+        this.moirePeriod = 6.0 + random.nextDouble() * 10.0;
+        this.moirePhase = random.nextDouble() * Math.PI * 2.0;
+    }
+
+    /** Pantalla vista por la camara: gamma, perspectiva, desenfoque y moire. Es estable mientras dura el slide. */
+    byte[] capture(byte[] screen, int screenWidth, int screenHeight) {
+        float[] frame = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double w = homography[6] * x + homography[7] * y + homography[8];
+                double u = (homography[0] * x + homography[1] * y + homography[2]) / w;
+                double v = (homography[3] * x + homography[4] * y + homography[5]) / w;
+                frame[y * width + x] = sample(screen, screenWidth, screenHeight, u, v);
+            }
+        }
+        if (settings.blurSigma > 0) {
+            gaussianBlur(frame, width, height, settings.blurSigma);
+        }
+        if (settings.moire > 0) {
+            double cos = Math.cos(moireAngle);
+            double sin = Math.sin(moireAngle);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double wave = 0.5 + 0.5 * Math.sin((x * cos + y * sin) * 2.0 * Math.PI / moirePeriod + moirePhase);
+                    frame[y * width + x] *= (float) (1.0 - settings.moire * wave);
+                }
+            }
+        }
+        byte[] gray = new byte[width * height];
+        for (int i = 0; i < gray.length; i++) {
+            gray[i] = (byte) clamp(Math.round(frame[i]));
+        }
+        return gray;
+    }
+
+    /** Ruido de sensor y compresion de cada frame individual. */
+    byte[] expose(byte[] captured) throws IOException {
+        byte[] frame = captured.clone();
+        if (settings.noiseSigma > 0) {
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (byte) clamp((frame[i] & 0xFF) + (int) Math.round(random.nextGaussian() * settings.noiseSigma));
+            }
+        }
+        return settings.jpegQuality > 0 ? jpegRoundTrip(frame, width, height, settings.jpegQuality) : frame;
+    }
+
+    static byte[] blend(byte[] from, byte[] to) {
+        byte[] mixed = new byte[to.length];
+        for (int i = 0; i < mixed.length; i++) {
+            mixed[i] = (byte) (((from[i] & 0xFF) + (to[i] & 0xFF)) / 2);
+        }
+        return mixed;
+    }
+
+    private float sample(byte[] screen, int screenWidth, int screenHeight, double u, double v) {
+        if (u < 0 || v < 0 || u > screenWidth - 1 || v > screenHeight - 1) {
+            return BACKGROUND;
+        }
+        int x0 = (int) u;
+        int y0 = (int) v;
+        int x1 = Math.min(screenWidth - 1, x0 + 1);
+        int y1 = Math.min(screenHeight - 1, y0 + 1);
+        double fx = u - x0;
+        double fy = v - y0;
+        double top = gammaTable[screen[y0 * screenWidth + x0] & 0xFF] * (1 - fx)
+                + gammaTable[screen[y0 * screenWidth + x1] & 0xFF] * fx;
+        double bottom = gammaTable[screen[y1 * screenWidth + x0] & 0xFF] * (1 - fx)
+                + gammaTable[screen[y1 * screenWidth + x1] & 0xFF] * fx;
+        return (float) (top * (1 - fy) + bottom * fy);
+    }
+
+    private double[] cameraToScreen(int screenWidth, int screenHeight) {
+        double scale = settings.screenFill * Math.min(width / (double) screenWidth, height / (double) screenHeight);
+        double left = (width - screenWidth * scale) / 2.0;
+        double top = (height - screenHeight * scale) / 2.0;
+        double right = left + screenWidth * scale;
+        double bottom = top + screenHeight * scale;
+        double jitter = settings.warp * Math.min(width, height);
+        double[] camera = {
+                left + jitter(jitter), top + jitter(jitter),
+                right + jitter(jitter), top + jitter(jitter),
+                right + jitter(jitter), bottom + jitter(jitter),
+                left + jitter(jitter), bottom + jitter(jitter)
+        };
+        double[] screen = {
+                0, 0,
+                screenWidth - 1, 0,
+                screenWidth - 1, screenHeight - 1,
+                0, screenHeight - 1
+        };
+        return solveHomography(camera, screen);
+    }
+
+    private double jitter(double amplitude) {
+        return (random.nextDouble() * 2.0 - 1.0) * amplitude;
+    }
+
+    private static double[] solveHomography(double[] from, double[] to) {
+        double[][] system = new double[8][9];
+        for (int i = 0; i < 4; i++) {
+            double x = from[i * 2];
+            double y = from[i * 2 + 1];
+            double u = to[i * 2];
+            double v = to[i * 2 + 1];
+            system[i * 2] = new double[] {x, y, 1, 0, 0, 0, -u * x, -u * y, u};
+            system[i * 2 + 1] = new double[] {0, 0, 0, x, y, 1, -v * x, -v * y, v};
+        }
+        for (int column = 0; column < 8; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < 8; row++) {
+                if (Math.abs(system[row][column]) > Math.abs(system[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            double[] swap = system[column];
+            system[column] = system[pivot];
+            system[pivot] = swap;
+            for (int row = 0; row < 8; row++) {
+                if (row == column) {
+                    continue;
+                }
+                double factor = system[row][column] / system[column][column];
+                for (int k = column; k < 9; k++) {
+                    system[row][k] -= factor * system[column][k];
+                }
+            }
+        }
+        double[] h = new double[9];
+        for (int i = 0; i < 8; i++) {
+            h[i] = system[i][8] / system[i][i];
+        }
+        h[8] = 1.0;
+        return h;
+    }
+
+    private static void gaussianBlur(float[] frame, int width, int height, double sigma) {
+        int radius = Math.max(1, (int) Math.ceil(sigma * 3.0));
+        float[] kernel = new float[radius * 2 + 1];
+        float sum = 0f;
+        for (int i = -radius; i <= radius; i++) {
+            kernel[i + radius] = (float) Math.exp(-(i * i) / (2.0 * sigma * sigma));
+            sum += kernel[i + radius];
+        }
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] /= sum;
+        }
+        float[] pass = new float[frame.length];
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                float value = 0f;
+                for (int k = -radius; k <= radius; k++) {
+                    int sx = Math.min(width - 1, Math.max(0, x + k));
+                    value += frame[row + sx] * kernel[k + radius];
+                }
+                pass[row + x] = value;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float value = 0f;
+                for (int k = -radius; k <= radius; k++) {
+                    int sy = Math.min(height - 1, Math.max(0, y + k));
+                    value += pass[sy * width + x] * kernel[k + radius];
+                }
+                frame[y * width + x] = value;
+            }
+        }
+    }
+
+    private static byte[] jpegRoundTrip(byte[] gray, int width, int height, int quality) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        System.arraycopy(gray, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData(), 0, gray.length);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(gray.length / 4);
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(encoded)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality / 100f);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoded.toByteArray()));
+        byte[] result = new byte[width * height];
+        decoded.getRaster().getDataElements(0, 0, width, height, result);
+        return result;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+
+    static final class Settings {
+        private final double warp;
+        private final double blurSigma;
+        private final double noiseSigma;
+        private final double moire;
+        private final double gamma;
+        private final int jpegQuality;
+        private final double screenFill;
+
+        Settings(double warp, double blurSigma, double noiseSigma, double moire, double gamma, int jpegQuality, double screenFill) {
+            this.warp = warp;
+            this.blurSigma = blurSigma;
+            this.noiseSigma = noiseSigma;
+            this.moire = moire;
+            this.gamma = gamma;
+            this.jpegQuality = jpegQuality;
+            this.screenFill = screenFill;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "warp=%.3f blur=%.2f ruido=%.1f moire=%.2f gamma=%.2f jpeg=%s pantalla=%.0f%%",
+                    warp, blurSigma, noiseSigma, moire, gamma,
+                    jpegQuality > 0 ? Integer.toString(jpegQuality) : "no", screenFill * 100.0);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package app;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class ReaderBenchmarks {
+    private static final int[][] RESOLUTIONS = {{640, 360}, {1280, 720}, {1920, 1080}};
+    private static final int[] NOISE_SIGMAS = {0, 8, 24};
+    private static final int[] PAYLOAD_SIZES = {1024, 64 * 1024, 1024 * 1024, 16 * 1024 * 1024, 100 * 1024 * 1024};
+    private static final int ANALYSIS_SIZE = 64;
+
+    private final BenchmarkRunner runner;
+    private final String filter;
+    private final int maxPayload;
+    private final List<BenchmarkRunner.BenchmarkResult> results = new ArrayList<>();
+
+    private ReaderBenchmarks(BenchmarkRunner runner, String filter, int maxPayload) {
+        this.runner = runner;
+        this.filter = filter;
+        this.maxPayload = maxPayload;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int warmup = 3;
+        int iterations = 5;
+        int iterationMillis = 1000;
+        String filter = null;
+        int maxPayload = PAYLOAD_SIZES[PAYLOAD_SIZES.length - 1];
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--iteration-ms":
+                    iterationMillis = Integer.parseInt(args[++i]);
+                    break;
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                case "--max-payload":
+                    maxPayload = BenchFixtures.parseSize(args[++i]);
+                    break;
+                case "--csv":
+                    csv = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bandera no soportada: " + args[i]);
+            }
+        }
+
+        ReaderBenchmarks benchmarks = new ReaderBenchmarks(
+                new BenchmarkRunner(warmup, iterations, iterationMillis), filter, maxPayload);
+        System.out.println(String.format(Locale.US,
+                "Benchmarks del lector: %d warmup + %d iteraciones de %d ms, JVM %s",
+                warmup, iterations, iterationMillis, System.getProperty("java.version")));
+        System.out.println(BenchmarkRunner.BenchmarkResult.tableHeader());
+        benchmarks.runFrameBenchmarks();
+        benchmarks.runDecodeBenchmarks();
+        benchmarks.runPayloadBenchmarks();
+        if (csv != null) {
+            benchmarks.writeCsv(csv);
+            System.out.println("CSV: " + csv.toAbsolutePath());
+        }
+    }
+
+    private void runFrameBenchmarks() throws Exception {
+        String text = BenchFixtures.chunkText();
+        for (int[] resolution : RESOLUTIONS) {
+            String parameters = resolution[0] + "x" + resolution[1];
+            GrayFrame frame = BenchFixtures.qrFrame(text, resolution[0], resolution[1], 8);
+            GrayFrame other = BenchFixtures.qrFrame(text, resolution[0], resolution[1], 24);
+            run("FrameSignature.from", parameters, () -> FrameChangeDetector.signatureOf(frame, ANALYSIS_SIZE));
+
+            FrameSignature first = FrameChangeDetector.signatureOf(frame, ANALYSIS_SIZE);
+            FrameSignature second = FrameChangeDetector.signatureOf(other, ANALYSIS_SIZE);
+            run("FrameSignature.distance", parameters, () -> first.distance(second));
+        }
+    }
+
+    private void runDecodeBenchmarks() throws Exception {
+        String text = BenchFixtures.chunkText();
+        for (int[] resolution : RESOLUTIONS) {
+            for (int noise : NOISE_SIGMAS) {
+                GrayFrame frame = BenchFixtures.qrFrame(text, resolution[0], resolution[1], noise);
+                String parameters = String.format(Locale.US, "%dx%d ruido=%d", resolution[0], resolution[1], noise);
+                if (QrFrameReader.decodeQrRobust(frame) == null) {
+                    System.out.println("  (sin lectura) decodeQrRobust " + parameters);
+                }
+                run("QrFrameReader.decodeQrRobust", parameters, () -> QrFrameReader.decodeQrRobust(frame));
+            }
+        }
+
+        GrayFrame frame = BenchFixtures.qrFrame(text, 1920, 1080, 8);
+        for (double ratio : QrFrameReader.candidateCropRatios()) {
+            int side = (int) Math.round(Math.min(frame.width(), frame.height()) * ratio);
+            GrayFrame candidate = frame.crop((frame.width() - side) / 2, (frame.height() - side) / 2, side, side);
+            for (double scale : QrFrameReader.variantScales()) {
+                GrayFrame variant = scale == 1.0 ? candidate : candidate.scale(scale);
+                String parameters = String.format(Locale.US, "crop=%.2f escala=%.1f", ratio, scale);
+                run("QrFrameReader.decodeVariant", parameters, () -> QrFrameReader.decodeVariant(variant));
+            }
+            run("GrayFrame.scale", String.format(Locale.US, "crop=%.2f escala=2.0", ratio), () -> candidate.scale(2.0));
+        }
+    }
+
+    private void runPayloadBenchmarks() throws Exception {
+        Path dir = Files.createTempDirectory("qr-read-bench-");
+        try {
+            for (int size : PAYLOAD_SIZES) {
+                if (size > maxPayload) {
+                    continue;
+                }
+                String parameters = BenchFixtures.formatSize(size);
+                String payload = BenchFixtures.filePayload(size);
+                run("PayloadZipService.decodePayload", parameters, () -> PayloadZipService.decodePayload(payload));
+
+                PayloadZipService.DecodedPayload decoded = PayloadZipService.decodePayload(payload);
+                Path target = dir.resolve("payload.bin");
+                run("PayloadZipService.writeVerified", parameters,
+                        () -> PayloadZipService.writeVerifiedPayload(decoded, target));
+
+                Path zip = BenchFixtures.zipFile(dir, size);
+                Path extracted = dir.resolve("unzip");
+                run("PayloadZipService.unzip", parameters, () -> {
+                    PayloadZipService.unzip(zip, extracted);
+                    return extracted;
+                });
+                FileUtils.deleteRecursively(extracted);
+                Files.deleteIfExists(zip);
+                Files.deleteIfExists(target);
+            }
+        } finally {
+            FileUtils.deleteRecursively(dir);
+        }
+    }
+
+    private void run(String name, String parameters, BenchmarkRunner.Operation operation) throws Exception {
+        if (filter != null && !name.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        BenchmarkRunner.BenchmarkResult result = runner.measure(name, parameters, operation);
+        results.add(result);
+        System.out.println(result.toTableRow());
+    }
+
+    private void writeCsv(Path csv) throws IOException {
+        Path parent = csv.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            writer.println(BenchmarkRunner.BenchmarkResult.csvHeader());
+            for (BenchmarkRunner.BenchmarkResult result : results) {
+                writer.println(result.toCsvRow());
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package app;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public final class TransferBenchmark {
+    private static final long SEED = 0x7EA5F3L;
+    private static final int VIDEO_FPS = 30;
+    private static final int ANALYSIS_SIZE = 64;
+
+    private final int width;
+    private final int height;
+    private final boolean direct;
+    private final boolean verbose;
+    private final byte[] payload;
+    private final Path workDir;
+
+    private TransferBenchmark(int width, int height, boolean direct, boolean verbose, byte[] payload, Path workDir) {
+        this.width = width;
+        this.height = height;
+        this.direct = direct;
+        this.verbose = verbose;
+        this.payload = payload;
+        this.workDir = workDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] chunkSizes = {1000, 2000};
+        int[] slideDelays = {1250};
+        int[] fpsValues = {6};
+        double[] thresholds = {0.10};
+        int[] crfValues = {23, 32};
+        double[] blurSigmas = {0.0, 1.0};
+        int payloadSize = 16 * 1024;
+        int[] resolution = {1280, 720};
+        boolean direct = false;
+        boolean verbose = false;
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--chunk-sizes":
+                    chunkSizes = parseInts(args[++i]);
+                    break;
+                case "--delays":
+                    slideDelays = parseInts(args[++i]);
+                    break;
+                case "--fps":
+                    fpsValues = parseInts(args[++i]);
+                    break;
+                case "--thresholds":
+                    thresholds = parseDoubles(args[++i]);
+                    break;
+                case "--crf":
+                    crfValues = parseInts(args[++i]);
+                    break;
+                case "--blur":
+                    blurSigmas = parseDoubles(args[++i]);
+                    break;
+                case "--payload":
+                    payloadSize = BenchFixtures.parseSize(args[++i]);
+                    break;
+                case "--resolution": {
+                    String[] parts = args[++i].toLowerCase(Locale.ROOT).split("x");
+                    resolution = new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+                    break;
+                }
+                case "--direct":
+                    direct = true;
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--csv":
+                    csv = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Bandera no soportada: " + args[i]);
+            }
+        }
+        if (direct) {
+            crfValues = new int[] {0};
+            blurSigmas = new double[] {0.0};
+        }
+
+        byte[] payload = new byte[payloadSize];
+        new Random(SEED).nextBytes(payload);
+        Path workDir = Files.createTempDirectory("qr-transfer-bench-");
+        TransferBenchmark benchmark = new TransferBenchmark(
+                resolution[0], resolution[1], direct, verbose, payload, workDir);
+        List<TransferResult> results = new ArrayList<>();
+        try {
+            System.out.println(String.format(Locale.US,
+                    "Transferencia de extremo a extremo: payload %s, %dx%d, %s",
+                    BenchFixtures.formatSize(payloadSize),
+                    resolution[0],
+                    resolution[1],
+                    direct ? "slides directos sin video" : "video H.264 a " + VIDEO_FPS + " fps"));
+            System.out.println(TransferResult.tableHeader());
+            for (int chunkSize : chunkSizes) {
+                for (int delay : slideDelays) {
+                    for (int fps : fpsValues) {
+                        for (double threshold : thresholds) {
+                            for (int crf : crfValues) {
+                                for (double blur : blurSigmas) {
+                                    TransferResult result = benchmark.runCase(
+                                            new TransferCase(chunkSize, delay, fps, threshold, crf, blur));
+                                    results.add(result);
+                                    System.out.println(result.toTableRow());
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            FileUtils.deleteRecursively(workDir);
+        }
+        if (csv != null) {
+            writeCsv(csv, results);
+            System.out.println("CSV: " + csv.toAbsolutePath());
+        }
+    }
+
+    private TransferResult runCase(TransferCase transferCase) throws Exception {
+        Path caseDir = Files.createTempDirectory(workDir, "caso-");
+        PrintStream console = System.out;
+        if (!verbose) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        TransferResult result = new TransferResult(transferCase);
+        try {
+            Path payloadFile = caseDir.resolve("payload.bin");
+            Files.write(payloadFile, payload);
+
+            long start = System.nanoTime();
+            List<String> chunks = QrGeneratorApp.buildSlideshowChunks(
+                    QrGeneratorApp.buildFilePayload(payloadFile, payload), transferCase.chunkSize);
+            Path slidesDir = Files.createDirectories(caseDir.resolve("slides"));
+            renderSlides(chunks, slidesDir);
+            result.renderMillis = elapsedMillis(start);
+            result.totalChunks = chunks.size() - 1;
+            result.videoSeconds = chunks.size() * transferCase.slideDelayMs / 1000.0;
+
+            Path framesDir = Files.createDirectories(caseDir.resolve("frames"));
+            if (direct) {
+                start = System.nanoTime();
+                expandSlidesToFrames(slidesDir, framesDir, chunks.size(), transferCase);
+                result.extractMillis = elapsedMillis(start);
+            } else {
+                Path video = caseDir.resolve("transfer.mp4");
+                start = System.nanoTime();
+                encodeVideo(slidesDir, video, transferCase);
+                result.encodeMillis = elapsedMillis(start);
+
+                start = System.nanoTime();
+                FfmpegFrameExtractor.extractFrames(video, framesDir, transferCase.fps);
+                result.extractMillis = elapsedMillis(start);
+            }
+
+            List<Path> frames = FileUtils.listPngFrames(framesDir, "frame_");
+            start = System.nanoTime();
+            FrameChangeDetector.DetectionResult detection = FrameChangeDetector.detectChanges(
+                    frames,
+                    ChangeThreshold.fixed(transferCase.threshold),
+                    ANALYSIS_SIZE,
+                    FrameChangeDetector.Selection.FIRST,
+                    FrameSink.off(),
+                    ChunkJournal.disabled());
+            result.detectMillis = elapsedMillis(start);
+
+            start = System.nanoTime();
+            List<String> decoded = QrFrameReader.decodeFrames(
+                    detection.detectedFrames(),
+                    frames,
+                    SlideLayout.single(),
+                    QrFrameReader.defaultNeighborOffsets(),
+                    true,
+                    FrameResolver.identity(),
+                    FrameSink.off(),
+                    ChunkJournal.disabled());
+            result.decodeMillis = elapsedMillis(start);
+            ChunkIntegrity.Progress progress = new ChunkIntegrity.Progress();
+            for (String chunk : decoded) {
+                progress.add(chunk);
+            }
+            result.decodedChunks = progress.received();
+
+            start = System.nanoTime();
+            try {
+                PayloadZipService.PayloadBuildResult build =
+                        PayloadZipService.buildPayloadFromBase64Chunks(decoded, caseDir.resolve("zips"));
+                result.success = Arrays.equals(payload, Files.readAllBytes(build.outputPath()));
+            } catch (IllegalStateException ex) {
+                result.failure = ex.getMessage();
+            }
+            result.assembleMillis = elapsedMillis(start);
+        } catch (IOException | InterruptedException ex) {
+            result.failure = ex.getMessage();
+        } finally {
+            System.setOut(console);
+            FileUtils.deleteRecursively(caseDir);
+        }
+        result.payloadBytes = payload.length;
+        return result;
+    }
+
+    private void renderSlides(List<String> chunks, Path slidesDir) throws Exception {
+        int side = Math.min(width, height);
+        for (int i = 0; i < chunks.size(); i++) {
+            BufferedImage qr = QrGeneratorApp.generateQr(chunks.get(i), side, side);
+            QrGeneratorApp.drawQrOverlay(qr, i == 0 ? "W" : Integer.toString(i));
+            BufferedImage slide = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = slide.createGraphics();
+            try {
+                g2d.setColor(Color.WHITE);
+                g2d.fillRect(0, 0, width, height);
+                g2d.drawImage(qr, (width - side) / 2, (height - side) / 2, null);
+            } finally {
+                g2d.dispose();
+            }
+            Path output = slidesDir.resolve(String.format(Locale.US, "slide_%04d.png", i + 1));
+            if (!ImageIO.write(slide, "png", output.toFile())) {
+                throw new IOException("No se pudo escribir " + output.getFileName());
+            }
+        }
+    }
+
+    private static void expandSlidesToFrames(Path slidesDir, Path framesDir, int slideCount, TransferCase transferCase)
+            throws IOException {
+        double framesPerSlide = transferCase.fps * transferCase.slideDelayMs / 1000.0;
+        int frameNumber = 0;
+        for (int slide = 1; slide <= slideCount; slide++) {
+            Path source = slidesDir.resolve(String.format(Locale.US, "slide_%04d.png", slide));
+            int target = (int) Math.round(slide * framesPerSlide);
+            while (frameNumber < target) {
+                frameNumber++;
+                Files.copy(source, framesDir.resolve(String.format(Locale.US, "frame_%08d.png", frameNumber)));
+            }
+        }
+    }
+
+    private static void encodeVideo(Path slidesDir, Path video, TransferCase transferCase)
+            throws IOException, InterruptedException {
+        String filter = "fps=" + VIDEO_FPS
+                + (transferCase.blurSigma > 0 ? String.format(Locale.US, ",gblur=sigma=%.2f", transferCase.blurSigma) : "")
+                + ",format=yuv420p";
+        List<String> command = List.of(
+                "ffmpeg",
+                "-hide_banner",
+                "-loglevel", "error",
+                "-y",
+                "-framerate", "1000/" + transferCase.slideDelayMs,
+                "-i", slidesDir.resolve("slide_%04d.png").toString(),
+                "-vf", filter,
+                "-c:v", "libx264",
+                "-preset", "veryfast",
+                "-crf", Integer.toString(transferCase.crf),
+                video.toString()
+        );
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("ffmpeg devolvio codigo " + exitCode + ". Salida: " + output);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    private static int[] parseInts(String raw) {
+        return Arrays.stream(raw.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static double[] parseDoubles(String raw) {
+        return Arrays.stream(raw.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    private static void writeCsv(Path csv, List<TransferResult> results) throws IOException {
+        Path parent = csv.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            writer.println(TransferResult.csvHeader());
+            for (TransferResult result : results) {
+                writer.println(result.toCsvRow());
+            }
+        }
+    }
+
+    private static final class TransferCase {
+        private final int chunkSize;
+        private final int slideDelayMs;
+        private final int fps;
+        private final double threshold;
+        private final int crf;
+        private final double blurSigma;
+
+        private TransferCase(int chunkSize, int slideDelayMs, int fps, double threshold, int crf, double blurSigma) {
+            this.chunkSize = chunkSize;
+            this.slideDelayMs = slideDelayMs;
+            this.fps = fps;
+            this.threshold = threshold;
+            this.crf = crf;
+            this.blurSigma = blurSigma;
+        }
+    }
+
+    private static final class TransferResult {
+        private final TransferCase transferCase;
+        private int payloadBytes;
+        private int totalChunks;
+        private int decodedChunks;
+        private double videoSeconds;
+        private boolean success;
+        private String failure = "";
+        private long renderMillis;
+        private long encodeMillis;
+        private long extractMillis;
+        private long detectMillis;
+        private long decodeMillis;
+        private long assembleMillis;
+
+        private TransferResult(TransferCase transferCase) {
+            this.transferCase = transferCase;
+        }
+
+        private double bytesPerVideoSecond() {
+            return success && videoSeconds > 0 ? payloadBytes / videoSeconds : 0.0;
+        }
+
+        private double decodeRate() {
+            return totalChunks == 0 ? 0.0 : decodedChunks / (double) totalChunks;
+        }
+
+        private String toTableRow() {
+            return String.format(Locale.US,
+                    "%6d %6d %4d %6.3f %4d %5.2f | %-3s %6.1f%% %10.1f | %7d %7d %7d %7d %7d %7d",
+                    transferCase.chunkSize,
+                    transferCase.slideDelayMs,
+                    transferCase.fps,
+                    transferCase.threshold,
+                    transferCase.crf,
+                    transferCase.blurSigma,
+                    success ? "ok" : "NO",
+                    decodeRate() * 100.0,
+                    bytesPerVideoSecond(),
+                    renderMillis,
+                    encodeMillis,
+                    extractMillis,
+                    detectMillis,
+                    decodeMillis,
+                    assembleMillis);
+        }
+
+        private String toCsvRow() {
+            return String.format(Locale.US,
+                    "%d,%d,%d,%.4f,%d,%.2f,%d,%d,%d,%.2f,%s,%.4f,%.1f,%d,%d,%d,%d,%d,%d,\"%s\"",
+                    transferCase.chunkSize,
+                    transferCase.slideDelayMs,
+                    transferCase.fps,
+                    transferCase.threshold,
+                    transferCase.crf,
+                    transferCase.blurSigma,
+                    payloadBytes,
+                    totalChunks,
+                    decodedChunks,
+                    videoSeconds,
+                    success,
+                    decodeRate(),
+                    bytesPerVideoSecond(),
+                    renderMillis,
+                    encodeMillis,
+                    extractMillis,
+                    detectMillis,
+                    decodeMillis,
+                    assembleMillis,
+                    failure == null ? "" : failure.replace('"', '\''));
+        }
+
+        private static String tableHeader() {
+            return String.format(Locale.US,
+                    "%6s %6s %4s %6s %4s %5s | %-3s %7s %10s | %7s %7s %7s %7s %7s %7s",
+                    "chunk", "delay", "fps", "thr", "crf", "blur", "ok", "chunks", "B/s video",
+                    "render", "encode", "extrae", "detect", "decode", "arma");
+        }
+
+        private static String csvHeader() {
+            return "chunk_size,slide_delay_ms,fps,threshold,crf,blur_sigma,payload_bytes,total_chunks,"
+                    + "decoded_chunks,video_seconds,success,decode_rate,bytes_per_video_second,"
+                    + "render_ms,encode_ms,extract_ms,detect_ms,decode_ms,assemble_ms,error";
+        }
+    }
+}
@@ -1,47 +1,150 @@
 package app;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 final class AppConfig {
     private static final Path DEFAULT_VIDEO = Path.of("video", "qrs.mp4");
     private static final Path DEFAULT_FRAMES_DIR = Path.of("frames");
     private static final Path DEFAULT_ZIPS_DIR = Path.of("zips");
+    private static final Path DEFAULT_JOURNAL_DIR = Path.of("journal");
     private static final int DEFAULT_FPS = 6;
     private static final double DEFAULT_CHANGE_THRESHOLD = 0.10;
     private static final int DEFAULT_ANALYSIS_SIZE = 64;
+    private static final int DEFAULT_TILE_COLUMNS = 1;
+    private static final int DEFAULT_TILE_ROWS = 1;
+    private static final int DEFAULT_SAMPLES_PER_SLIDE = 1;
+    private static final int MAX_SAMPLES_PER_SLIDE = 4;
+    private static final int DEFAULT_LOW_RESOLUTION_HEIGHT = 240;
+    private static final int DEFAULT_JOBS = 2;
 
     private final Path videoPath;
+    private final List<Path> mergeVideos;
     private final Path framesOutputDir;
     private final Path zipsOutputDir;
     private final int fps;
     private final double changeThreshold;
+    private final boolean adaptiveThreshold;
     private final int analysisSize;
+    private final SlideLayout slideLayout;
+    private final boolean cadenceSampling;
+    private final int samplesPerSlide;
+    private final int slidePeriodMs;
+    private final FrameChangeDetector.Selection frameSelection;
+    private final boolean finderPrefilter;
+    private final int extractionSegments;
+    private final boolean lowResolutionProfile;
+    private final int lowResolutionHeight;
+    private final FrameSink.Mode frameSinkMode;
+    private final Path journalDir;
+    private final String liveInput;
+    private final String liveFormat;
+    private final boolean liveRealtime;
+    private final Path jfrFile;
+    private final Path watchDir;
+    private final int jobs;
+    private final int servePort;
+    private final Path imagesDir;
+    private final ImageSequenceInput.Order imageOrder;
+    private final Path deltaBase;
 
     private AppConfig(
             Path videoPath,
+            List<Path> mergeVideos,
             Path framesOutputDir,
             Path zipsOutputDir,
             int fps,
             double changeThreshold,
-            int analysisSize
+            boolean adaptiveThreshold,
+            int analysisSize,
+            SlideLayout slideLayout,
+            boolean cadenceSampling,
+            int samplesPerSlide,
+            int slidePeriodMs,
+            FrameChangeDetector.Selection frameSelection,
+            boolean finderPrefilter,
+            int extractionSegments,
+            boolean lowResolutionProfile,
+            int lowResolutionHeight,
+            FrameSink.Mode frameSinkMode,
+            Path journalDir,
+            String liveInput,
+            String liveFormat,
+            boolean liveRealtime,
+            Path jfrFile,
+            Path watchDir,
+            int jobs,
+            int servePort,
+            Path imagesDir,
+            ImageSequenceInput.Order imageOrder,
+            Path deltaBase
     ) {
         this.videoPath = videoPath;
+        this.mergeVideos = List.copyOf(mergeVideos);
         this.framesOutputDir = framesOutputDir;
         this.zipsOutputDir = zipsOutputDir;
         this.fps = fps;
         this.changeThreshold = changeThreshold;
+        this.adaptiveThreshold = adaptiveThreshold;
         this.analysisSize = analysisSize;
+        this.slideLayout = slideLayout;
+        this.cadenceSampling = cadenceSampling;
+        this.samplesPerSlide = samplesPerSlide;
+        this.slidePeriodMs = slidePeriodMs;
+        this.frameSelection = frameSelection;
+        this.finderPrefilter = finderPrefilter;
+        this.extractionSegments = extractionSegments;
+        this.lowResolutionProfile = lowResolutionProfile;
+        this.lowResolutionHeight = lowResolutionHeight;
+        this.frameSinkMode = frameSinkMode;
+        this.journalDir = journalDir;
+        this.liveInput = liveInput;
+        this.liveFormat = liveFormat;
+        this.liveRealtime = liveRealtime;
+        this.jfrFile = jfrFile;
+        this.watchDir = watchDir;
+        this.jobs = jobs;
+        this.servePort = servePort;
+        this.imagesDir = imagesDir;
+        this.imageOrder = imageOrder;
+        this.deltaBase = deltaBase;
     }
 
     static AppConfig fromArgs(String[] args) {
         Path video = DEFAULT_VIDEO;
+        List<Path> mergeVideos = new ArrayList<>();
         Path frames = DEFAULT_FRAMES_DIR;
         Path zips = DEFAULT_ZIPS_DIR;
         int fps = DEFAULT_FPS;
         double threshold = DEFAULT_CHANGE_THRESHOLD;
+        boolean adaptiveThreshold = false;
         int analysisSize = DEFAULT_ANALYSIS_SIZE;
+        int tileColumns = DEFAULT_TILE_COLUMNS;
+        int tileRows = DEFAULT_TILE_ROWS;
+        boolean colorChannels = false;
+        boolean cadenceSampling = false;
+        int samplesPerSlide = DEFAULT_SAMPLES_PER_SLIDE;
+        int slidePeriodMs = 0;
+        FrameChangeDetector.Selection frameSelection = FrameChangeDetector.Selection.FIRST;
+        boolean finderPrefilter = true;
+        int extractionSegments = 1;
+        boolean lowResolutionProfile = false;
+        int lowResolutionHeight = DEFAULT_LOW_RESOLUTION_HEIGHT;
+        FrameSink.Mode frameSinkMode = FrameSink.Mode.ASYNC;
+        Path journalDir = DEFAULT_JOURNAL_DIR;
+        String liveInput = null;
+        String liveFormat = null;
+        boolean liveRealtime = false;
+        Path jfrFile = null;
+        Path watchDir = null;
+        Integer jobs = null;
+        int servePort = -1;
+        Path imagesDir = null;
+        ImageSequenceInput.Order imageOrder = null;
+        Path deltaBase = null;
 
         List<String> positional = new ArrayList<>();
 
@@ -51,6 +154,9 @@ final class AppConfig {
                 case "--video":
                     video = Path.of(requireValue(args, ++i, "--video"));
                     break;
+                case "--merge":
+                    mergeVideos.add(Path.of(requireValue(args, ++i, "--merge")));
+                    break;
                 case "--frames":
                     frames = Path.of(requireValue(args, ++i, "--frames"));
                     break;
@@ -60,12 +166,90 @@ final class AppConfig {
                 case "--fps":
                     fps = Integer.parseInt(requireValue(args, ++i, "--fps"));
                     break;
-                case "--threshold":
-                    threshold = Double.parseDouble(requireValue(args, ++i, "--threshold"));
+                case "--threshold": {
+                    String value = requireValue(args, ++i, "--threshold");
+                    if ("auto".equalsIgnoreCase(value.trim())) {
+                        adaptiveThreshold = true;
+                    } else {
+                        threshold = Double.parseDouble(value);
+                    }
                     break;
+                }
                 case "--analysis-size":
                     analysisSize = Integer.parseInt(requireValue(args, ++i, "--analysis-size"));
                     break;
+                case "--tiles": {
+                    int[] tiles = parseTiles(requireValue(args, ++i, "--tiles"));
+                    tileColumns = tiles[0];
+                    tileRows = tiles[1];
+                    break;
+                }
+                case "--color-channels":
+                    colorChannels = true;
+                    break;
+                case "--sampling":
+                    cadenceSampling = parseSampling(requireValue(args, ++i, "--sampling"));
+                    break;
+                case "--samples-per-slide":
+                    samplesPerSlide = Integer.parseInt(requireValue(args, ++i, "--samples-per-slide"));
+                    break;
+                case "--slide-period-ms":
+                    slidePeriodMs = Integer.parseInt(requireValue(args, ++i, "--slide-period-ms"));
+                    break;
+                case "--frame-selection":
+                    frameSelection = parseFrameSelection(requireValue(args, ++i, "--frame-selection"));
+                    break;
+                case "--no-prefilter":
+                    finderPrefilter = false;
+                    break;
+                case "--segments":
+                    extractionSegments = Integer.parseInt(requireValue(args, ++i, "--segments"));
+                    break;
+                case "--profile":
+                    lowResolutionProfile = parseProfile(requireValue(args, ++i, "--profile"));
+                    break;
+                case "--lowres-height":
+                    lowResolutionHeight = Integer.parseInt(requireValue(args, ++i, "--lowres-height"));
+                    break;
+                case "--save-frames":
+                    frameSinkMode = parseFrameSinkMode(requireValue(args, ++i, "--save-frames"));
+                    break;
+                case "--journal":
+                    journalDir = Path.of(requireValue(args, ++i, "--journal"));
+                    break;
+                case "--no-journal":
+                    journalDir = null;
+                    break;
+                case "--live":
+                    liveInput = requireValue(args, ++i, "--live");
+                    break;
+                case "--live-format":
+                    liveFormat = requireValue(args, ++i, "--live-format");
+                    break;
+                case "--live-realtime":
+                    liveRealtime = true;
+                    break;
+                case "--jfr":
+                    jfrFile = Path.of(requireValue(args, ++i, "--jfr"));
+                    break;
+                case "--watch":
+                    watchDir = Path.of(requireValue(args, ++i, "--watch"));
+                    break;
+                case "--jobs":
+                    jobs = Integer.parseInt(requireValue(args, ++i, "--jobs"));
+                    break;
+                case "--serve":
+                    servePort = Integer.parseInt(requireValue(args, ++i, "--serve"));
+                    break;
+                case "--images":
+                    imagesDir = Path.of(requireValue(args, ++i, "--images"));
+                    break;
+                case "--image-order":
+                    imageOrder = parseImageOrder(requireValue(args, ++i, "--image-order"));
+                    break;
+                case "--delta-base":
+                    deltaBase = Path.of(requireValue(args, ++i, "--delta-base"));
+                    break;
                 case "--help":
                     break;
                 default:
@@ -99,8 +283,82 @@ final class AppConfig {
         if (threshold < 0.0 || threshold > 1.0) {
             throw new IllegalArgumentException("--threshold debe estar entre 0 y 1");
         }
+        if (samplesPerSlide < 1 || samplesPerSlide > MAX_SAMPLES_PER_SLIDE) {
+            throw new IllegalArgumentException("--samples-per-slide debe estar entre 1 y " + MAX_SAMPLES_PER_SLIDE);
+        }
+        if (slidePeriodMs < 0) {
+            throw new IllegalArgumentException("--slide-period-ms debe ser >= 0 (0 = estimar)");
+        }
+        if (extractionSegments < 1) {
+            throw new IllegalArgumentException("--segments debe ser >= 1");
+        }
+        if (extractionSegments > 1 && cadenceSampling) {
+            throw new IllegalArgumentException("--segments solo aplica con --sampling fixed");
+        }
+        if (lowResolutionProfile && cadenceSampling) {
+            throw new IllegalArgumentException("--profile lowres solo aplica con --sampling fixed");
+        }
+        if (lowResolutionProfile && lowResolutionHeight < 2 * analysisSize) {
+            throw new IllegalArgumentException("--lowres-height debe ser >= 2 x --analysis-size");
+        }
+        if (liveInput == null && (liveFormat != null || liveRealtime)) {
+            throw new IllegalArgumentException("--live-format y --live-realtime requieren --live");
+        }
+        if (liveInput != null && (cadenceSampling || extractionSegments > 1 || lowResolutionProfile)) {
+            throw new IllegalArgumentException("--live solo aplica con --sampling fixed, sin --segments ni --profile lowres");
+        }
+        if (liveInput != null && colorChannels) {
+            throw new IllegalArgumentException("--live lee un stream gris y no soporta --color-channels");
+        }
+        if (servePort != -1 && (servePort < 0 || servePort > 65535)) {
+            throw new IllegalArgumentException("--serve debe ser un puerto entre 0 y 65535");
+        }
+        if (servePort >= 0 && (watchDir != null || liveInput != null || !positional.isEmpty())) {
+            throw new IllegalArgumentException("--serve recibe los videos por HTTP; no se combina con --watch, --live ni un video");
+        }
+        if (!mergeVideos.isEmpty() && (liveInput != null || watchDir != null || servePort >= 0 || imagesDir != null)) {
+            throw new IllegalArgumentException("--merge combina videos; no aplica con --live, --watch, --serve ni --images");
+        }
+        if (adaptiveThreshold && cadenceSampling) {
+            throw new IllegalArgumentException("--threshold auto necesita frames seguidos; con --sampling cadence use un threshold fijo");
+        }
+        if (imageOrder != null && imagesDir == null) {
+            throw new IllegalArgumentException("--image-order requiere --images");
+        }
+        if (imagesDir != null && (liveInput != null || watchDir != null || servePort >= 0 || !positional.isEmpty())) {
+            throw new IllegalArgumentException("--images lee una carpeta de imagenes; no se combina con --live, --watch, --serve ni un video");
+        }
+        if (imagesDir != null && (cadenceSampling || extractionSegments > 1 || lowResolutionProfile)) {
+            throw new IllegalArgumentException("--images no extrae frames: no aplica --sampling cadence, --segments ni --profile lowres");
+        }
+        if (jobs != null && watchDir == null && servePort < 0) {
+            throw new IllegalArgumentException("--jobs requiere --watch o --serve");
+        }
+        if (jobs != null && jobs < 1) {
+            throw new IllegalArgumentException("--jobs debe ser >= 1");
+        }
+        if (watchDir != null && liveInput != null) {
+            throw new IllegalArgumentException("--watch procesa videos de una carpeta y no se combina con --live");
+        }
+        if (watchDir != null && !positional.isEmpty()) {
+            throw new IllegalArgumentException("--watch toma los videos de la carpeta; no indique un video");
+        }
 
-        return new AppConfig(video, frames, zips, fps, threshold, analysisSize);
+        return new AppConfig(video, mergeVideos, frames, zips, fps, threshold, adaptiveThreshold, analysisSize,
+                SlideLayout.of(tileColumns, tileRows, colorChannels), cadenceSampling, samplesPerSlide, slidePeriodMs,
+                frameSelection, finderPrefilter, extractionSegments, lowResolutionProfile, lowResolutionHeight,
+                frameSinkMode, cadenceSampling || liveInput != null || imagesDir != null ? null : journalDir,
+                liveInput, liveFormat, liveRealtime, jfrFile,
+                watchDir, jobs == null ? DEFAULT_JOBS : jobs, servePort,
+                imagesDir, imageOrder == null ? ImageSequenceInput.Order.NAME : imageOrder, deltaBase);
+    }
+
+    AppConfig forJob(Path video, Path frames, Path zips) {
+        return new AppConfig(video, List.of(), frames, zips, fps, changeThreshold, adaptiveThreshold, analysisSize,
+                slideLayout, cadenceSampling, samplesPerSlide, slidePeriodMs,
+                frameSelection, finderPrefilter, extractionSegments, lowResolutionProfile, lowResolutionHeight,
+                frameSinkMode, journalDir, liveInput, liveFormat, liveRealtime, jfrFile,
+                null, 1, -1, null, imageOrder, deltaBase);
     }
 
     static boolean hasHelpFlag(String[] args) {
@@ -116,6 +374,109 @@ final class AppConfig {
         System.out.println("Uso:");
         System.out.println("  java app.QrFrameChangeDetectorApp [video.mp4] [framesDir] [zipsDir]");
         System.out.println("  java app.QrFrameChangeDetectorApp --video video\\qrs.mp4 --frames frames --zips zips --fps 6 --threshold 0.10 --analysis-size 64");
+        System.out.println("  --merge <video>              otra grabacion del mismo slideshow; se combinan los chunks (repetible)");
+        System.out.println("  --threshold auto             threshold adaptativo segun la distribucion de diffs");
+        System.out.println("  --tiles <columnas>x<filas>   mosaico de QRs por slide (default 1x1)");
+        System.out.println("  --color-channels             tres QRs por celda en los canales R, G y B");
+        System.out.println("  --sampling fixed|cadence     muestreo fijo a --fps o alineado a la cadencia de slides");
+        System.out.println("  --samples-per-slide <n>      frames por slide en modo cadence (default 1)");
+        System.out.println("  --slide-period-ms <n>        periodo conocido del generador (default: estimado)");
+        System.out.println("  --frame-selection first|sharpest  frame a decodificar por cada cambio (default first)");
+        System.out.println("  --no-prefilter               decodifica aunque el frame no muestre patrones de localizacion");
+        System.out.println("  --segments <n>               extrae el video en n tramos con ffmpeg en paralelo (default 1)");
+        System.out.println("  --profile full|lowres        lowres detecta cambios sobre un stream gris reducido (default full)");
+        System.out.println("  --lowres-height <px>         alto del stream reducido en modo lowres (default 240)");
+        System.out.println("  --save-frames async|off|failed  guardado de frames en --frames (default async)");
+        System.out.println("  --journal <dir>              journal de firmas y chunks para reanudar (default journal)");
+        System.out.println("  --no-journal                 no lee ni escribe el journal");
+        System.out.println("  --live <entrada>             decodifica en vivo una entrada de ffmpeg (camara, URL, archivo creciendo)");
+        System.out.println("  --live-format <formato>      formato de entrada para ffmpeg -f (ej. dshow, v4l2)");
+        System.out.println("  --live-realtime              lee la entrada a velocidad nativa (-re), para probar con un archivo");
+        System.out.println("  --jfr <archivo.jfr>          graba la corrida con Java Flight Recorder (eventos propios + GC)");
+        System.out.println("  --watch <carpeta>            modo daemon: procesa cada video que llegue a la carpeta");
+        System.out.println("  --images <carpeta>           decodifica una carpeta de fotos o capturas PNG/JPEG, sin ffmpeg");
+        System.out.println("  --image-order name|mtime|exif  orden de las imagenes (default name, numeros en orden natural)");
+        System.out.println("  --serve <puerto>             servicio HTTP local (127.0.0.1) para subir videos y bajar resultados");
+        System.out.println("  --jobs <n>                   videos procesados en paralelo en modo --watch o --serve (default 2)");
+        System.out.println("  --delta-base <archivo|dir>   archivo previo para reconstruir un payload delta (en carpeta se busca por SHA-256)");
+    }
+
+    private static boolean parseSampling(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "fixed":
+                return false;
+            case "cadence":
+                return true;
+            default:
+                throw new IllegalArgumentException("--sampling debe ser fixed o cadence");
+        }
+    }
+
+    private static FrameSink.Mode parseFrameSinkMode(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "async":
+                return FrameSink.Mode.ASYNC;
+            case "off":
+                return FrameSink.Mode.OFF;
+            case "failed":
+                return FrameSink.Mode.FAILED;
+            default:
+                throw new IllegalArgumentException("--save-frames debe ser async, off o failed");
+        }
+    }
+
+    private static boolean parseProfile(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "full":
+                return false;
+            case "lowres":
+                return true;
+            default:
+                throw new IllegalArgumentException("--profile debe ser full o lowres");
+        }
+    }
+
+    private static ImageSequenceInput.Order parseImageOrder(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "name":
+                return ImageSequenceInput.Order.NAME;
+            case "mtime":
+                return ImageSequenceInput.Order.MTIME;
+            case "exif":
+                return ImageSequenceInput.Order.EXIF;
+            default:
+                throw new IllegalArgumentException("--image-order debe ser name, mtime o exif");
+        }
+    }
+
+    private static FrameChangeDetector.Selection parseFrameSelection(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "first":
+                return FrameChangeDetector.Selection.FIRST;
+            case "sharpest":
+                return FrameChangeDetector.Selection.SHARPEST;
+            default:
+                throw new IllegalArgumentException("--frame-selection debe ser first o sharpest");
+        }
+    }
+
+    private static int[] parseTiles(String raw) {
+        String[] parts = raw.trim().toLowerCase(Locale.ROOT).split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("--tiles debe tener formato <columnas>x<filas>, ej. 2x2");
+        }
+        int columns;
+        int rows;
+        try {
+            columns = Integer.parseInt(parts[0].trim());
+            rows = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("--tiles debe tener formato <columnas>x<filas>, ej. 2x2");
+        }
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("--tiles requiere columnas y filas > 0");
+        }
+        return new int[] {columns, rows};
     }
 
     private static String requireValue(String[] args, int index, String name) {
@@ -129,6 +490,10 @@ final class AppConfig {
         return videoPath;
     }
 
+    List<Path> mergeVideos() {
+        return mergeVideos;
+    }
+
     Path framesOutputDir() {
         return framesOutputDir;
     }
@@ -145,7 +510,133 @@ final class AppConfig {
         return changeThreshold;
     }
 
+    boolean adaptiveThreshold() {
+        return adaptiveThreshold;
+    }
+
+    ChangeThreshold newChangeThreshold() {
+        return adaptiveThreshold ? ChangeThreshold.adaptive(changeThreshold) : ChangeThreshold.fixed(changeThreshold);
+    }
+
     int analysisSize() {
         return analysisSize;
     }
+
+    SlideLayout slideLayout() {
+        return slideLayout;
+    }
+
+    boolean cadenceSampling() {
+        return cadenceSampling;
+    }
+
+    int samplesPerSlide() {
+        return samplesPerSlide;
+    }
+
+    int slidePeriodMs() {
+        return slidePeriodMs;
+    }
+
+    FrameChangeDetector.Selection frameSelection() {
+        return frameSelection;
+    }
+
+    boolean finderPrefilter() {
+        return finderPrefilter;
+    }
+
+    int extractionSegments() {
+        return extractionSegments;
+    }
+
+    FrameSink.Mode frameSinkMode() {
+        return frameSinkMode;
+    }
+
+    FrameSink newFrameSink() {
+        switch (frameSinkMode) {
+            case OFF:
+                return FrameSink.off();
+            case FAILED:
+                return new AsyncFrameSink(framesOutputDir, true);
+            default:
+                return new AsyncFrameSink(framesOutputDir, false);
+        }
+    }
+
+    Path journalDir() {
+        return journalDir;
+    }
+
+    ChunkJournal openJournal() throws IOException {
+        if (journalDir == null) {
+            return ChunkJournal.disabled();
+        }
+        String parameters = "fps=" + fps + ";profile="
+                + (lowResolutionProfile ? "lowres@" + lowResolutionHeight : "full")
+                + ";analysis=" + analysisSize
+                + ";segments=" + extractionSegments;
+        return ChunkJournal.open(journalDir, videoPath, parameters);
+    }
+
+    boolean liveMode() {
+        return liveInput != null;
+    }
+
+    String liveInput() {
+        return liveInput;
+    }
+
+    String liveFormat() {
+        return liveFormat;
+    }
+
+    boolean liveRealtime() {
+        return liveRealtime;
+    }
+
+    Path jfrFile() {
+        return jfrFile;
+    }
+
+    Path watchDir() {
+        return watchDir;
+    }
+
+    int jobs() {
+        return jobs;
+    }
+
+    boolean imagesMode() {
+        return imagesDir != null;
+    }
+
+    Path imagesDir() {
+        return imagesDir;
+    }
+
+    ImageSequenceInput.Order imageOrder() {
+        return imageOrder;
+    }
+
+    Path deltaBase() {
+        return deltaBase;
+    }
+
+    boolean serveMode() {
+        return servePort >= 0;
+    }
+
+    int servePort() {
+        return servePort;
+    }
+
+    boolean lowResolutionProfile() {
+        return lowResolutionProfile;
+    }
+
+    int lowResolutionHeight() {
+        return lowResolutionHeight;
+    }
 }
@@ -0,0 +1,152 @@
+package app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+final class AsyncFrameSink implements FrameSink {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final PendingFrame END = new PendingFrame(null, null);
+
+    private final Path outputDir;
+    private final boolean onlyFailed;
+    private final BlockingQueue<PendingFrame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile IOException failure;
+    private volatile boolean linksSupported = true;
+    private int dropped;
+    private int missing;
+    private int linked;
+    private int copied;
+
+    AsyncFrameSink(Path outputDir, boolean onlyFailed) {
+        this.outputDir = outputDir;
+        this.onlyFailed = onlyFailed;
+        this.writer = new Thread(this::drain, "frame-sink-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void detected(Path frame, int changeNumber) {
+        if (!onlyFailed) {
+            enqueue(frame, String.format(Locale.US, "change_%04d_%s", changeNumber, frame.getFileName()));
+        }
+    }
+
+    @Override
+    public void decodeFailed(Path frame) {
+        enqueue(frame, "failed_" + frame.getFileName());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando la escritura de frames");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    int written() {
+        return linked + copied;
+    }
+
+    int linked() {
+        return linked;
+    }
+
+    int dropped() {
+        return dropped;
+    }
+
+    int missing() {
+        return missing;
+    }
+
+    private void enqueue(Path frame, String targetName) {
+        if (failure != null || !queue.offer(new PendingFrame(frame, targetName))) {
+            dropped++;
+        }
+    }
+
+    private void drain() {
+        try {
+            prepareOutputDir();
+            while (true) {
+                PendingFrame pending = queue.take();
+                if (pending == END) {
+                    return;
+                }
+                write(pending);
+            }
+        } catch (IOException ex) {
+            failure = ex;
+            queue.clear();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void prepareOutputDir() throws IOException {
+        if (Files.isDirectory(outputDir)) {
+            Path discarded = outputDir.resolveSibling(outputDir.getFileName() + ".old-" + System.nanoTime());
+            try {
+                Files.move(outputDir, discarded);
+                FileUtils.deleteRecursively(discarded);
+            } catch (IOException ex) {
+                FileUtils.clearDirectory(outputDir);
+            }
+        }
+        Files.createDirectories(outputDir);
+    }
+
+    /** La existencia del frame se revisa aqui y no al encolar: el bucle de deteccion no toca disco. */
+    private void write(PendingFrame pending) throws IOException {
+        if (!Files.exists(pending.source)) {
+            missing++;
+            return;
+        }
+        Path target = outputDir.resolve(pending.targetName);
+        Files.deleteIfExists(target);
+        if (linksSupported) {
+            try {
+                Files.createLink(target, pending.source);
+                linked++;
+                return;
+            } catch (NoSuchFileException ex) {
+                missing++;
+                return;
+            } catch (IOException | UnsupportedOperationException ex) {
+                linksSupported = false;
+            }
+        }
+        try {
+            Files.copy(pending.source, target, StandardCopyOption.REPLACE_EXISTING);
+            copied++;
+        } catch (NoSuchFileException ex) {
+            missing++;
+        }
+    }
+
+    private static final class PendingFrame {
+        private final Path source;
+        private final String targetName;
+
+        private PendingFrame(Path source, String targetName) {
+            this.source = source;
+            this.targetName = targetName;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+final class CadenceSampler {
+    private static final double PROBE_SECONDS = 5.0;
+    private static final double SEGMENT_SECONDS = 60.0;
+    private static final int MIN_TRANSITIONS_FOR_PERIOD = 4;
+    private static final int RECENT_TRANSITIONS_FOR_PHASE = 8;
+    private static final double MAX_RESIDUAL_RATIO = 0.25;
+    private static final int PERIOD_FIT_ITERATIONS = 3;
+
+    private final int fps;
+    private final double configuredPeriodSeconds;
+    private final List<Double> transitions = new ArrayList<>();
+    private double periodSeconds;
+    private double phaseSeconds;
+    private boolean locked;
+
+    private CadenceSampler(int fps, double configuredPeriodSeconds) {
+        this.fps = fps;
+        this.configuredPeriodSeconds = configuredPeriodSeconds;
+    }
+
+    static SamplingResult extractFrames(
+            Path videoPath,
+            Path framesDir,
+            int fps,
+            ChangeThreshold threshold,
+            int analysisSize,
+            int samplesPerSlide,
+            double configuredPeriodSeconds
+    ) throws IOException, InterruptedException {
+        CadenceSampler sampler = new CadenceSampler(fps, configuredPeriodSeconds);
+        Path windowDir = framesDir.resolve("window");
+        int nextNumber = 1;
+        int denseFrames = 0;
+        int sampledFrames = 0;
+        double segmentStart = 0.0;
+
+        while (true) {
+            FileUtils.clearDirectory(windowDir);
+            FfmpegFrameExtractor.extractWindow(videoPath, windowDir, "fps=" + fps, segmentStart, PROBE_SECONDS);
+            List<Path> probeFrames = FileUtils.listPngFrames(windowDir, "frame_");
+            if (probeFrames.isEmpty()) {
+                break;
+            }
+            sampler.collectTransitions(probeFrames, segmentStart, threshold, analysisSize);
+            nextNumber = FileUtils.moveFramesRenumbered(probeFrames, framesDir, nextNumber);
+            denseFrames += probeFrames.size();
+
+            double restStart = segmentStart + PROBE_SECONDS;
+            double segmentEnd = segmentStart + SEGMENT_SECONDS;
+            FileUtils.clearDirectory(windowDir);
+            List<Path> restFrames;
+            if (sampler.updateLock()) {
+                double firstSample = sampler.firstSampleAtOrAfter(restStart, samplesPerSlide);
+                String filter = String.format(Locale.US, "fps=%.6f", samplesPerSlide / sampler.periodSeconds);
+                FfmpegFrameExtractor.extractWindow(videoPath, windowDir, filter, firstSample, segmentEnd - firstSample);
+                restFrames = FileUtils.listPngFrames(windowDir, "frame_");
+                sampledFrames += restFrames.size();
+                System.out.println(String.format(Locale.US,
+                        "[cadencia] %.1fs-%.1fs | periodo=%.4fs fase=%.4fs | muestras=%d",
+                        segmentStart, segmentEnd, sampler.periodSeconds, sampler.phaseSeconds, restFrames.size()));
+            } else {
+                FfmpegFrameExtractor.extractWindow(videoPath, windowDir, "fps=" + fps, restStart, segmentEnd - restStart);
+                restFrames = FileUtils.listPngFrames(windowDir, "frame_");
+                sampler.collectTransitions(restFrames, restStart, threshold, analysisSize);
+                denseFrames += restFrames.size();
+                System.out.println(String.format(Locale.US,
+                        "[cadencia] %.1fs-%.1fs | sin bloqueo (transiciones=%d), extraccion completa=%d",
+                        segmentStart, segmentEnd, sampler.transitions.size(), restFrames.size()));
+            }
+            if (restFrames.isEmpty()) {
+                break;
+            }
+            nextNumber = FileUtils.moveFramesRenumbered(restFrames, framesDir, nextNumber);
+            segmentStart = segmentEnd;
+        }
+        FileUtils.deleteRecursively(windowDir);
+
+        return new SamplingResult(denseFrames, sampledFrames, sampler.locked, sampler.periodSeconds);
+    }
+
+    private void collectTransitions(
+            List<Path> frames,
+            double windowStart,
+            ChangeThreshold threshold,
+            int analysisSize
+    ) throws IOException {
+        FrameSignature previous = null;
+        for (int i = 0; i < frames.size(); i++) {
+            GrayFrame frame = FrameBufferPool.shared().read(frames.get(i));
+            if (frame == null) {
+                previous = null;
+                continue;
+            }
+            FrameSignature signature;
+            try {
+                signature = FrameChangeDetector.signatureOf(frame, analysisSize);
+            } finally {
+                frame.release();
+            }
+            if (previous != null && threshold.isChange(signature.distance(previous))) {
+                addTransition(windowStart + (i - 0.5) / fps);
+            }
+            previous = signature;
+        }
+    }
+
+    private void addTransition(double seconds) {
+        double minGap = 1.5 / fps;
+        if (!transitions.isEmpty()) {
+            int last = transitions.size() - 1;
+            double previous = transitions.get(last);
+            if (seconds - previous < minGap) {
+                transitions.set(last, (previous + seconds) / 2.0);
+                return;
+            }
+        }
+        transitions.add(seconds);
+    }
+
+    private boolean updateLock() {
+        int required = configuredPeriodSeconds > 0.0 ? 1 : MIN_TRANSITIONS_FOR_PERIOD;
+        if (transitions.size() < required) {
+            return locked;
+        }
+
+        double period = configuredPeriodSeconds > 0.0 ? configuredPeriodSeconds : fitPeriod();
+        if (period <= 0.0) {
+            return locked;
+        }
+        periodSeconds = period;
+        phaseSeconds = recentPhase(period);
+        locked = true;
+        return true;
+    }
+
+    private double fitPeriod() {
+        List<Double> intervals = new ArrayList<>();
+        for (int i = 1; i < transitions.size(); i++) {
+            intervals.add(transitions.get(i) - transitions.get(i - 1));
+        }
+        Collections.sort(intervals);
+        double median = intervals.get(intervals.size() / 2);
+        if (median <= 0.0) {
+            return -1.0;
+        }
+        double sum = 0.0;
+        int used = 0;
+        for (double interval : intervals) {
+            if (interval >= median * 0.7 && interval <= median * 1.3) {
+                sum += interval;
+                used++;
+            }
+        }
+        double period = sum / used;
+
+        for (int span = MIN_TRANSITIONS_FOR_PERIOD; ; span = Math.min(transitions.size(), span * 2)) {
+            for (int iteration = 0; iteration < PERIOD_FIT_ITERATIONS; iteration++) {
+                period = fitPeriod(transitions.subList(0, span), period);
+            }
+            if (span >= transitions.size()) {
+                return period;
+            }
+        }
+    }
+
+    private static double fitPeriod(List<Double> times, double period) {
+        double origin = times.get(0);
+        double sumK = 0.0;
+        double sumT = 0.0;
+        double sumKK = 0.0;
+        double sumKT = 0.0;
+        int count = 0;
+        for (double time : times) {
+            long k = Math.round((time - origin) / period);
+            double residual = time - origin - k * period;
+            if (Math.abs(residual) > period * MAX_RESIDUAL_RATIO) {
+                continue;
+            }
+            sumK += k;
+            sumT += time;
+            sumKK += (double) k * k;
+            sumKT += k * time;
+            count++;
+        }
+        double denominator = count * sumKK - sumK * sumK;
+        if (count < 2 || denominator <= 0.0) {
+            return period;
+        }
+        return (count * sumKT - sumK * sumT) / denominator;
+    }
+
+    private double recentPhase(double period) {
+        int from = Math.max(0, transitions.size() - RECENT_TRANSITIONS_FOR_PHASE);
+        double sumSin = 0.0;
+        double sumCos = 0.0;
+        for (int i = from; i < transitions.size(); i++) {
+            double angle = 2.0 * Math.PI * floorMod(transitions.get(i), period) / period;
+            sumSin += Math.sin(angle);
+            sumCos += Math.cos(angle);
+        }
+        double angle = Math.atan2(sumSin, sumCos);
+        return floorMod(angle / (2.0 * Math.PI) * period, period);
+    }
+
+    private double firstSampleAtOrAfter(double seconds, int samplesPerSlide) {
+        double step = periodSeconds / samplesPerSlide;
+        double base = phaseSeconds + step / 2.0;
+        double k = Math.ceil((seconds - base) / step);
+        return base + k * step;
+    }
+
+    private static double floorMod(double value, double modulus) {
+        double result = value % modulus;
+        return result < 0.0 ? result + modulus : result;
+    }
+
+    static final class SamplingResult {
+        private final int denseFrames;
+        private final int sampledFrames;
+        private final boolean locked;
+        private final double periodSeconds;
+
+        private SamplingResult(int denseFrames, int sampledFrames, boolean locked, double periodSeconds) {
+            this.denseFrames = denseFrames;
+            this.sampledFrames = sampledFrames;
+            this.locked = locked;
+            this.periodSeconds = periodSeconds;
+        }
+
+        int denseFrames() {
+            return denseFrames;
+        }
+
+        int sampledFrames() {
+            return sampledFrames;
+        }
+
+        boolean locked() {
+            return locked;
+        }
+
+        double periodSeconds() {
+            return periodSeconds;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package app;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+final class ChangeThreshold {
+    private static final int WINDOW_SIZE = 90;
+    private static final int WARMUP_SAMPLES = 12;
+    private static final double MAD_TO_SIGMA = 1.4826;
+    private static final double NOISE_SIGMAS = 6.0;
+    private static final double PEAK_SMOOTHING = 0.2;
+    private static final double MIN_THRESHOLD = 0.01;
+
+    private final boolean adaptive;
+    private final ArrayDeque<Double> window = new ArrayDeque<>();
+    private double current;
+    private double peakLevel = -1.0;
+    private double minUsed = Double.MAX_VALUE;
+    private double maxUsed = 0.0;
+
+    private ChangeThreshold(boolean adaptive, double initialThreshold) {
+        this.adaptive = adaptive;
+        this.current = initialThreshold;
+    }
+
+    static ChangeThreshold fixed(double threshold) {
+        return new ChangeThreshold(false, threshold);
+    }
+
+    static ChangeThreshold adaptive(double initialThreshold) {
+        return new ChangeThreshold(true, initialThreshold);
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    double current() {
+        return current;
+    }
+
+    boolean isChange(double diff) {
+        double threshold = current;
+        minUsed = Math.min(minUsed, threshold);
+        maxUsed = Math.max(maxUsed, threshold);
+        boolean change = diff >= threshold;
+        if (adaptive) {
+            observe(diff, change);
+        }
+        return change;
+    }
+
+    double minUsed() {
+        return minUsed == Double.MAX_VALUE ? current : minUsed;
+    }
+
+    double maxUsed() {
+        return maxUsed == 0.0 ? current : maxUsed;
+    }
+
+    private void observe(double diff, boolean change) {
+        if (change) {
+            peakLevel = peakLevel < 0.0 ? diff : peakLevel + PEAK_SMOOTHING * (diff - peakLevel);
+        }
+        window.addLast(diff);
+        if (window.size() > WINDOW_SIZE) {
+            window.removeFirst();
+        }
+        if (window.size() < WARMUP_SAMPLES) {
+            return;
+        }
+
+        double[] values = new double[window.size()];
+        int i = 0;
+        for (double value : window) {
+            values[i++] = value;
+        }
+        double median = median(values);
+        for (int j = 0; j < values.length; j++) {
+            values[j] = Math.abs(values[j] - median);
+        }
+        double sigma = median(values) * MAD_TO_SIGMA;
+        double noiseBound = median + NOISE_SIGMAS * sigma;
+        if (peakLevel > median) {
+            noiseBound = Math.min(noiseBound, (median + peakLevel) / 2.0);
+        }
+        current = Math.max(MIN_THRESHOLD, noiseBound);
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        if (values.length % 2 == 1) {
+            return values[middle];
+        }
+        return (values[middle - 1] + values[middle]) / 2.0;
+    }
+}
@@ -0,0 +1,311 @@
+package app;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+final class ChunkIntegrity {
+    private static final String CHUNK_TAG = "QRC1|";
+    private static final int MAX_LISTED_MISSING = 20;
+
+    private ChunkIntegrity() {
+    }
+
+    static boolean isFramed(String text) {
+        return text != null && text.startsWith(CHUNK_TAG);
+    }
+
+    static boolean isIntact(String text) {
+        return !isFramed(text) || parse(text) != null;
+    }
+
+    static List<String> assemble(List<String> chunks) {
+        boolean framed = false;
+        for (String chunk : chunks) {
+            framed |= isFramed(chunk);
+        }
+        if (!framed) {
+            return chunks;
+        }
+
+        TreeMap<Integer, String> byIndex = new TreeMap<>();
+        int total = 0;
+        int duplicates = 0;
+        int ignored = 0;
+        for (String chunk : chunks) {
+            FramedChunk parsed = isFramed(chunk) ? parse(chunk) : null;
+            if (parsed == null) {
+                ignored++;
+                continue;
+            }
+            total = Math.max(total, parsed.total);
+            String previous = byIndex.putIfAbsent(parsed.index, parsed.data);
+            ReaderEvents.ChunkAssembled event = new ReaderEvents.ChunkAssembled();
+            if (event.shouldCommit()) {
+                event.index = parsed.index;
+                event.total = parsed.total;
+                event.length = parsed.data.length();
+                event.duplicate = previous != null;
+                event.commit();
+            }
+            if (previous != null) {
+                duplicates++;
+                if (!previous.equals(parsed.data)) {
+                    throw new IllegalStateException("El chunk " + parsed.index + " aparece con dos contenidos distintos.");
+                }
+            }
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (int index = 1; index <= total; index++) {
+            if (!byIndex.containsKey(index)) {
+                missing.add(index);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Integer> listed = missing.subList(0, Math.min(missing.size(), MAX_LISTED_MISSING));
+            throw new IllegalStateException(String.format(Locale.US,
+                    "Faltan %d de %d chunks: %s%s",
+                    missing.size(),
+                    total,
+                    listed,
+                    missing.size() > listed.size() ? " ..." : ""));
+        }
+
+        System.out.println(String.format(Locale.US,
+                "[payload] Chunks verificados con CRC32C: %d (duplicados descartados: %d, sin verificar ignorados: %d)",
+                total, duplicates, ignored));
+        return new ArrayList<>(byIndex.values());
+    }
+
+    /**
+     * Combina los chunks de varias grabaciones del mismo slideshow. Cada grabacion vota una vez por
+     * variante de cada indice; gana la variante con mas votos y, en empate, la de la grabacion
+     * listada primero. El total tambien se decide por voto para descartar chunks de otra transferencia.
+     */
+    static List<String> merge(List<String> labels, List<List<String>> recordings) {
+        boolean framed = false;
+        for (List<String> chunks : recordings) {
+            for (String chunk : chunks) {
+                framed |= isFramed(chunk);
+            }
+        }
+        if (!framed) {
+            return mergeUnframed(labels, recordings);
+        }
+
+        Map<Integer, Integer> totalVotes = new HashMap<>();
+        List<Map<Integer, Map<String, String>>> parsed = new ArrayList<>(recordings.size());
+        for (List<String> chunks : recordings) {
+            Map<Integer, Map<String, String>> byIndex = new HashMap<>();
+            Set<Integer> totals = new HashSet<>();
+            for (String chunk : chunks) {
+                FramedChunk chunkParsed = isFramed(chunk) ? parse(chunk) : null;
+                if (chunkParsed == null) {
+                    continue;
+                }
+                totals.add(chunkParsed.total);
+                byIndex.computeIfAbsent(chunkParsed.index, ignored -> new LinkedHashMap<>())
+                        .putIfAbsent(chunkParsed.total + "|" + chunkParsed.data, chunk);
+            }
+            for (int total : totals) {
+                totalVotes.merge(total, 1, Integer::sum);
+            }
+            parsed.add(byIndex);
+        }
+        int total = 0;
+        int bestVotes = 0;
+        for (Map.Entry<Integer, Integer> entry : totalVotes.entrySet()) {
+            if (entry.getValue() > bestVotes || (entry.getValue() == bestVotes && entry.getKey() > total)) {
+                total = entry.getKey();
+                bestVotes = entry.getValue();
+            }
+        }
+        if (totalVotes.size() > 1) {
+            System.out.println(String.format(Locale.US,
+                    "[merge] Las grabaciones no coinciden en el total de chunks %s; se usa %d y se descartan los demas",
+                    new TreeMap<>(totalVotes).keySet(), total));
+        }
+
+        List<String> merged = new ArrayList<>();
+        int[] covered = new int[recordings.size()];
+        int[] onlyHere = new int[recordings.size()];
+        int contested = 0;
+        int outvoted = 0;
+        String prefix = total + "|";
+        for (int index = 1; index <= total; index++) {
+            Map<String, Integer> votes = new LinkedHashMap<>();
+            Map<String, String> texts = new HashMap<>();
+            int holders = 0;
+            int holder = -1;
+            for (int recording = 0; recording < parsed.size(); recording++) {
+                Map<String, String> variants = parsed.get(recording).get(index);
+                boolean has = false;
+                if (variants != null) {
+                    for (Map.Entry<String, String> variant : variants.entrySet()) {
+                        if (variant.getKey().startsWith(prefix)) {
+                            votes.merge(variant.getKey(), 1, Integer::sum);
+                            texts.putIfAbsent(variant.getKey(), variant.getValue());
+                            has = true;
+                        }
+                    }
+                }
+                if (has) {
+                    covered[recording]++;
+                    holders++;
+                    holder = recording;
+                }
+            }
+            if (votes.isEmpty()) {
+                continue;
+            }
+            if (holders == 1) {
+                onlyHere[holder]++;
+            }
+            String winner = null;
+            int winnerVotes = 0;
+            for (Map.Entry<String, Integer> vote : votes.entrySet()) {
+                if (vote.getValue() > winnerVotes) {
+                    winner = vote.getKey();
+                    winnerVotes = vote.getValue();
+                }
+            }
+            if (votes.size() > 1) {
+                contested++;
+                outvoted += holders - winnerVotes;
+                System.out.println(String.format(Locale.US,
+                        "[merge] Chunk %d con %d variantes; gana la de %d de %d grabaciones",
+                        index, votes.size(), winnerVotes, holders));
+            }
+            merged.add(texts.get(winner));
+        }
+
+        for (int recording = 0; recording < recordings.size(); recording++) {
+            System.out.println(String.format(Locale.US,
+                    "[merge] %s: %d/%d chunks (%d solo en esta grabacion)",
+                    labels.get(recording), covered[recording], total, onlyHere[recording]));
+        }
+        System.out.println(String.format(Locale.US,
+                "[merge] Chunks combinados: %d/%d; indices en disputa: %d (votos en minoria descartados: %d)",
+                merged.size(), total, contested, outvoted));
+        return merged;
+    }
+
+    /** Sin marco QRC1 la posicion es el orden de lectura; solo se puede votar si todas leyeron lo mismo. */
+    private static List<String> mergeUnframed(List<String> labels, List<List<String>> recordings) {
+        int longest = 0;
+        boolean aligned = true;
+        for (int recording = 0; recording < recordings.size(); recording++) {
+            if (recordings.get(recording).size() > recordings.get(longest).size()) {
+                longest = recording;
+            }
+            aligned &= recordings.get(recording).size() == recordings.get(0).size();
+        }
+        if (!aligned) {
+            System.out.println(String.format(Locale.US,
+                    "[merge] Chunks sin marco QRC1 con distinta cantidad por grabacion; no se pueden alinear por posicion, se usa %s",
+                    labels.get(longest)));
+            return recordings.get(longest);
+        }
+        List<String> merged = new ArrayList<>();
+        int contested = 0;
+        for (int position = 0; position < recordings.get(0).size(); position++) {
+            Map<String, Integer> votes = new LinkedHashMap<>();
+            for (List<String> chunks : recordings) {
+                votes.merge(chunks.get(position), 1, Integer::sum);
+            }
+            String winner = null;
+            int winnerVotes = 0;
+            for (Map.Entry<String, Integer> vote : votes.entrySet()) {
+                if (vote.getValue() > winnerVotes) {
+                    winner = vote.getKey();
+                    winnerVotes = vote.getValue();
+                }
+            }
+            if (votes.size() > 1) {
+                contested++;
+            }
+            merged.add(winner);
+        }
+        System.out.println(String.format(Locale.US,
+                "[merge] Chunks sin marco QRC1 alineados por posicion: %d; posiciones en disputa: %d",
+                merged.size(), contested));
+        return merged;
+    }
+
+    static final class Progress {
+        private final BitSet received = new BitSet();
+        private int total;
+
+        boolean add(String text) {
+            FramedChunk chunk = isFramed(text) ? parse(text) : null;
+            if (chunk == null) {
+                return false;
+            }
+            total = Math.max(total, chunk.total);
+            received.set(chunk.index);
+            return true;
+        }
+
+        int received() {
+            return received.cardinality();
+        }
+
+        int total() {
+            return total;
+        }
+
+        boolean complete() {
+            return total > 0 && received.cardinality() == total && received.nextSetBit(total + 1) < 0;
+        }
+    }
+
+    private static FramedChunk parse(String text) {
+        int positionEnd = text.indexOf('|', CHUNK_TAG.length());
+        int crcEnd = positionEnd < 0 ? -1 : text.indexOf('|', positionEnd + 1);
+        if (crcEnd < 0) {
+            return null;
+        }
+        String position = text.substring(CHUNK_TAG.length(), positionEnd);
+        String data = text.substring(crcEnd + 1);
+        int slash = position.indexOf('/');
+        try {
+            int index = Integer.parseInt(position.substring(0, slash));
+            int total = Integer.parseInt(position.substring(slash + 1));
+            long expected = Long.parseLong(text.substring(positionEnd + 1, crcEnd), 16);
+            if (index < 1 || index > total || expected != crc32c(position, data)) {
+                return null;
+            }
+            return new FramedChunk(index, total, data);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static long crc32c(String position, String data) {
+        CRC32C crc = new CRC32C();
+        crc.update((position + "|" + data).getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static final class FramedChunk {
+        private final int index;
+        private final int total;
+        private final String data;
+
+        private FramedChunk(int index, int total, String data) {
+            this.index = index;
+            this.total = total;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class ChunkJournal implements AutoCloseable {
+    private static final String HEADER = "QRJOURNAL1";
+    private static final int SYNC_BATCH = 64;
+    private static final int HASH_BUFFER_SIZE = 1 << 20;
+    private static final ChunkJournal DISABLED = new ChunkJournal(null, null);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<Integer, byte[]> signatures = new HashMap<>();
+    private final Map<String, List<String>> decoded = new HashMap<>();
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingRecords;
+    private int frameCount = -1;
+    private int resumedSignatures;
+    private int resumedDecodes;
+
+    private ChunkJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    static ChunkJournal disabled() {
+        return DISABLED;
+    }
+
+    static ChunkJournal open(Path journalDir, Path videoPath, String parametersKey) throws IOException {
+        String videoHash = sha256Hex(videoPath);
+        String key = videoHash + ";" + parametersKey;
+        String fileName = videoHash.substring(0, 16) + "-" + sha256Hex(parametersKey).substring(0, 8) + ".journal";
+        Files.createDirectories(journalDir);
+        Path file = journalDir.resolve(fileName);
+
+        boolean exists = Files.exists(file);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!lockExclusively(channel)) {
+            channel.close();
+            System.out.println("[journal] " + file + " esta en uso por otro job; esta corrida sigue sin journal");
+            return disabled();
+        }
+        ChunkJournal journal = new ChunkJournal(file, channel);
+        if (exists) {
+            dropTornTail(file, channel);
+        }
+        if (exists && !journal.load(key)) {
+            channel.truncate(0);
+            exists = false;
+        }
+        if (!exists) {
+            journal.append(HEADER + " " + key);
+            journal.flush();
+        }
+        return journal;
+    }
+
+    /** Dos jobs sobre el mismo video en --watch, --serve o --merge no deben mezclar registros en un archivo. */
+    private static boolean lockExclusively(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException ex) {
+            return false;
+        }
+    }
+
+    boolean enabled() {
+        return channel != null;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    synchronized int frameCount() {
+        return frameCount;
+    }
+
+    synchronized int resumedSignatures() {
+        return resumedSignatures;
+    }
+
+    synchronized int resumedDecodes() {
+        return resumedDecodes;
+    }
+
+    synchronized FrameSignature signature(Path frame, int analysisSize) {
+        byte[] values = signatures.get(QrFrameReader.extractFrameNumber(frame));
+        if (values == null || values.length != analysisSize * analysisSize) {
+            return null;
+        }
+        return FrameSignature.fromBytes(values, analysisSize);
+    }
+
+    synchronized void recordSignature(Path frame, FrameSignature signature) throws IOException {
+        int number = QrFrameReader.extractFrameNumber(frame);
+        if (!enabled() || number < 0) {
+            return;
+        }
+        byte[] values = signature.toBytes();
+        signatures.put(number, values);
+        append("S " + number + " " + Base64.getEncoder().encodeToString(values));
+    }
+
+    synchronized void recordFrameCount(int count) throws IOException {
+        if (!enabled() || count == frameCount) {
+            return;
+        }
+        frameCount = count;
+        append("E " + count);
+        flush();
+    }
+
+    synchronized List<String> decoded(Path frame, SlideLayout layout) {
+        return decoded.get(decodeKey(QrFrameReader.extractFrameNumber(frame), layout));
+    }
+
+    synchronized void recordDecoded(Path frame, SlideLayout layout, List<String> texts) throws IOException {
+        int number = QrFrameReader.extractFrameNumber(frame);
+        if (!enabled() || number < 0 || texts.isEmpty()) {
+            return;
+        }
+        decoded.put(decodeKey(number, layout), List.copyOf(texts));
+        StringBuilder line = new StringBuilder("D ").append(number).append(' ').append(layoutToken(layout)).append(' ');
+        for (int i = 0; i < texts.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(Base64.getUrlEncoder().withoutPadding().encodeToString(texts.get(i).getBytes(StandardCharsets.UTF_8)));
+        }
+        append(line.toString());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!enabled()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private boolean load(String key) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(HEADER + " " + key)) {
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    applyRecord(line.split(" "));
+                } catch (RuntimeException ignored) {
+                }
+            }
+        }
+        resumedSignatures = signatures.size();
+        resumedDecodes = decoded.size();
+        return true;
+    }
+
+    private static void dropTornTail(Path file, FileChannel channel) throws IOException {
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = reader.size();
+            ByteBuffer block = ByteBuffer.allocate(4096);
+            while (end > 0) {
+                long start = Math.max(0, end - block.capacity());
+                block.clear().limit((int) (end - start));
+                reader.read(block, start);
+                for (int i = block.position() - 1; i >= 0; i--) {
+                    if (block.get(i) == '\n') {
+                        long validLength = start + i + 1;
+                        if (validLength < reader.size()) {
+                            channel.truncate(validLength);
+                        }
+                        return;
+                    }
+                }
+                end = start;
+            }
+            channel.truncate(0);
+        }
+    }
+
+    private void applyRecord(String[] parts) {
+        switch (parts[0]) {
+            case "S":
+                signatures.put(Integer.parseInt(parts[1]), Base64.getDecoder().decode(parts[2]));
+                break;
+            case "E":
+                frameCount = Integer.parseInt(parts[1]);
+                break;
+            case "D": {
+                List<String> texts = new ArrayList<>();
+                for (String encoded : parts[3].split(",")) {
+                    texts.add(new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8));
+                }
+                decoded.put(Integer.parseInt(parts[1]) + "|" + parts[2], List.copyOf(texts));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void append(String record) throws IOException {
+        pending.append(record).append('\n');
+        pendingRecords++;
+        if (pendingRecords >= SYNC_BATCH) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.length() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        pending.setLength(0);
+        pendingRecords = 0;
+    }
+
+    private static String decodeKey(int frameNumber, SlideLayout layout) {
+        return frameNumber + "|" + layoutToken(layout);
+    }
+
+    private static String layoutToken(SlideLayout layout) {
+        return layout.columns() + "x" + layout.rows() + "x" + layout.channels();
+    }
+
+    private static String sha256Hex(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(path)) {
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String sha256Hex(String text) {
+        return toHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(String.format(Locale.US, "%02x", value & 0xFF));
+        }
+        return hex.toString();
+    }
+}
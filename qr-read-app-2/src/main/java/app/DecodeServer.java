@@ -0,0 +1,494 @@
+package app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Servicio HTTP local: recibe videos, los encola y expone el progreso y los archivos reconstruidos.
+ * Solo escucha en loopback. Los jobs corren en la misma JVM que ya tiene calientes el JIT, los
+ * pools de decodificacion y los buffers, igual que en el modo --watch.
+ */
+final class DecodeServer {
+    private static final String UPLOADS_DIR = "uploads";
+    private static final long STOP_DELAY_SECONDS = 1L;
+    private static final int MAX_FINISHED_JOBS = 200;
+
+    private final AppConfig config;
+    private final Path uploadsDir;
+    private final ExecutorService jobs;
+    private final Map<String, Job> registry = new ConcurrentHashMap<>();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final PrintStream console;
+
+    private DecodeServer(AppConfig config) {
+        this.config = config;
+        this.uploadsDir = config.zipsOutputDir().resolve(UPLOADS_DIR);
+        this.jobs = Executors.newFixedThreadPool(config.jobs(), namedThreads("qr-serve-job-"));
+        FrameBufferPool.shared().reserveForJobs(config.jobs());
+        this.console = System.out;
+    }
+
+    static void run(AppConfig config) throws IOException, InterruptedException {
+        new DecodeServer(config).serve();
+    }
+
+    private void serve() throws IOException, InterruptedException {
+        Files.createDirectories(uploadsDir);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.servePort()), 0);
+        server.createContext("/jobs", this::handleJobs);
+        server.createContext("/health", this::handleHealth);
+        // Las peticiones pasan casi todo el tiempo esperando red o disco: un hilo virtual por peticion.
+        ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(requests);
+
+        PrintStream originalErr = System.err;
+        System.setOut(JobOutput.routed(console));
+        System.setErr(JobOutput.routed(originalErr));
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopped.countDown();
+            try {
+                mainThread.join(10_000L);
+            } catch (InterruptedException ignored) {
+                // El proceso ya esta terminando.
+            }
+        }, "qr-serve-shutdown"));
+
+        server.start();
+        console.println(String.format(Locale.US,
+                "[serve] Escuchando en http://%s:%d con %d jobs en paralelo (peticiones en hilos virtuales); salida en %s",
+                server.getAddress().getAddress().getHostAddress(), server.getAddress().getPort(),
+                config.jobs(), config.zipsOutputDir().toAbsolutePath()));
+        try {
+            stopped.await();
+        } finally {
+            console.println("[serve] Deteniendo: los jobs en curso se cancelan");
+            server.stop((int) STOP_DELAY_SECONDS);
+            jobs.shutdownNow();
+            deleteQueuedUploads();
+            jobs.awaitTermination(10, TimeUnit.SECONDS);
+            requests.shutdownNow();
+            System.setOut(console);
+            System.setErr(originalErr);
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            if (!acceptLocal(exchange) || !requireMethod(exchange, "GET")) {
+                return;
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "ok");
+            body.put("jobs", config.jobs());
+            body.put("queued", registry.values().stream().filter(job -> job.state == State.QUEUED).count());
+            body.put("running", registry.values().stream().filter(job -> job.state == State.RUNNING).count());
+            body.put("submitted", submitted.get());
+            sendJson(exchange, 200, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            if (!acceptLocal(exchange)) {
+                return;
+            }
+            String[] parts = exchange.getRequestURI().getRawPath().split("/", 5);
+            // "", "jobs", id, recurso, ruta dentro del ZIP
+            if (parts.length <= 2 || parts[2].isEmpty()) {
+                if ("POST".equals(exchange.getRequestMethod())) {
+                    submit(exchange);
+                } else if (requireMethod(exchange, "GET")) {
+                    List<Object> summaries = registry.values().stream()
+                            .sorted((left, right) -> Long.compare(left.sequence, right.sequence))
+                            .map(this::describe)
+                            .collect(Collectors.toList());
+                    sendJson(exchange, 200, Map.of("jobs", summaries));
+                }
+                return;
+            }
+            if (!requireMethod(exchange, "GET")) {
+                return;
+            }
+            String id = decode(parts[2]);
+            Job job = registry.get(id);
+            if (job == null) {
+                sendError(exchange, 404, "No existe el job " + id);
+                return;
+            }
+            String resource = parts.length > 3 ? parts[3] : "";
+            switch (resource) {
+                case "":
+                    sendJson(exchange, 200, describe(job));
+                    break;
+                case "payload":
+                    sendPayload(exchange, job);
+                    break;
+                case "files":
+                    sendExtracted(exchange, job, parts.length > 4 ? decode(parts[4]) : "");
+                    break;
+                case "log":
+                    sendFile(exchange, job.outputDir.resolve("run.log"), "text/plain; charset=utf-8", null);
+                    break;
+                default:
+                    sendError(exchange, 404, "Recurso desconocido: " + resource);
+                    break;
+            }
+        } catch (RuntimeException ex) {
+            console.println("[serve] Error atendiendo " + exchange.getRequestURI() + ": " + ex.getMessage());
+            throw ex;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** El cuerpo de la peticion se copia directo a disco; el video nunca se carga completo en memoria. */
+    private void submit(HttpExchange exchange) throws IOException {
+        String name = queryParameter(exchange, "name");
+        if (name == null || name.isBlank()) {
+            sendError(exchange, 400, "Falta el parametro name con el nombre del video (ej. ?name=qrs.mp4)");
+            return;
+        }
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        if (!FileUtils.hasVideoExtension(name)) {
+            sendError(exchange, 415, "Extension de video no soportada: " + name);
+            return;
+        }
+
+        String id = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        Path upload = uploadsDir.resolve(id + name.substring(FileUtils.baseName(name).length()));
+        long bytes;
+        try (InputStream body = exchange.getRequestBody()) {
+            bytes = Files.copy(body, upload);
+        } catch (IOException ex) {
+            Files.deleteIfExists(upload);
+            throw ex;
+        }
+        if (bytes == 0) {
+            Files.delete(upload);
+            sendError(exchange, 400, "El cuerpo de la peticion esta vacio");
+            return;
+        }
+
+        Job job = new Job(id, submitted.incrementAndGet(), name, upload, bytes,
+                config.zipsOutputDir().resolve(id), config.framesOutputDir().resolve(id));
+        registry.put(id, job);
+        jobs.execute(() -> process(job));
+        console.println(String.format(Locale.US, "[serve] Job %s encolado: %s (%d bytes)", id, name, bytes));
+
+        exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+        sendJson(exchange, 202, describe(job));
+    }
+
+    private void process(Job job) {
+        job.startedAt = Instant.now();
+        job.state = State.RUNNING;
+        RunMetrics.bind(job.metrics);
+        try {
+            Files.createDirectories(job.outputDir);
+            JobOutput output = JobOutput.open(job.outputDir.resolve("run.log"));
+            try {
+                job.result = QrFrameChangeDetectorApp.run(config.forJob(job.upload, job.framesDir, job.outputDir));
+                job.state = State.DONE;
+            } finally {
+                output.close();
+            }
+        } catch (Exception ex) {
+            job.error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            RunMetrics.bind(null);
+            job.finishedAt = Instant.now();
+            deleteUpload(job);
+            evictFinishedJobs();
+        }
+        console.println(String.format(Locale.US, "[serve] Job %s %s en %.1f s%s", job.id,
+                job.state == State.DONE ? "terminado" : "fallido",
+                (job.finishedAt.toEpochMilli() - job.startedAt.toEpochMilli()) / 1000.0,
+                job.error == null ? "" : ": " + job.error));
+    }
+
+    /** El video subido solo sirve para el job; falle o no, se borra para no llenar zips/uploads. */
+    private void deleteUpload(Job job) {
+        try {
+            Files.deleteIfExists(job.upload);
+        } catch (IOException ex) {
+            console.println("[serve] No se pudo borrar " + job.upload + ": " + ex.getMessage());
+        }
+    }
+
+    /** Los jobs que seguian en cola no van a correr: sus videos no deben quedar en zips/uploads. */
+    private void deleteQueuedUploads() {
+        for (Job job : registry.values()) {
+            if (job.state == State.QUEUED) {
+                deleteUpload(job);
+            }
+        }
+    }
+
+    /** Solo se recuerdan los ultimos jobs terminados; sus carpetas en --zips se conservan. */
+    private void evictFinishedJobs() {
+        List<Job> finished = registry.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparingLong(job -> job.sequence))
+                .collect(Collectors.toList());
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            registry.remove(finished.get(i).id);
+        }
+    }
+
+    private Map<String, Object> describe(Job job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", job.id);
+        body.put("name", job.name);
+        body.put("bytes", job.bytes);
+        body.put("state", job.state.label);
+        body.put("stage", job.stage());
+        if (job.state == State.QUEUED) {
+            body.put("queuePosition", registry.values().stream()
+                    .filter(other -> other.state == State.QUEUED && other.sequence < job.sequence)
+                    .count() + 1);
+        }
+        body.put("createdAt", job.createdAt.toString());
+        body.put("startedAt", job.startedAt == null ? null : job.startedAt.toString());
+        body.put("finishedAt", job.finishedAt == null ? null : job.finishedAt.toString());
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("framesRead", job.metrics.timerCount("frame.read"));
+        progress.put("framesCompared", job.metrics.timerCount("frame.diff"));
+        progress.put("decodedQrs", job.metrics.counter("decode.tier.roi.hits")
+                + job.metrics.counter("decode.tier.full.hits")
+                + job.metrics.counter("decode.tier.tiles_roi.hits")
+                + job.metrics.counter("decode.tier.tiles.hits"));
+        body.put("progress", progress);
+
+        if (job.error != null) {
+            body.put("error", job.error);
+        }
+        PayloadZipService.PayloadBuildResult result = job.result;
+        if (result != null) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("file", result.outputPath().getFileName().toString());
+            payload.put("bytes", result.payloadBytes());
+            payload.put("mimeType", result.mimeType());
+            payload.put("originalFileName", result.originalFileName());
+            payload.put("sha256Verified", result.digestVerified());
+            payload.put("chunks", result.chunkCount());
+            payload.put("url", "/jobs/" + job.id + "/payload");
+            if (result.extractedDir() != null) {
+                payload.put("files", "/jobs/" + job.id + "/files");
+            }
+            body.put("payload", payload);
+        }
+        body.put("log", "/jobs/" + job.id + "/log");
+        return body;
+    }
+
+    private static void sendPayload(HttpExchange exchange, Job job) throws IOException {
+        PayloadZipService.PayloadBuildResult result = job.result;
+        if (result == null) {
+            sendError(exchange, 409, "El job " + job.id + " todavia no tiene archivo (" + job.state.label + ")");
+            return;
+        }
+        String downloadName = result.originalFileName() == null || result.originalFileName().isBlank()
+                ? result.outputPath().getFileName().toString()
+                : result.originalFileName();
+        sendFile(exchange, result.outputPath(), result.mimeType(), downloadName);
+    }
+
+    private static void sendExtracted(HttpExchange exchange, Job job, String relative) throws IOException {
+        PayloadZipService.PayloadBuildResult result = job.result;
+        if (result == null || result.extractedDir() == null) {
+            sendError(exchange, 409, "El job " + job.id + " no tiene contenido ZIP extraido");
+            return;
+        }
+        Path root = result.extractedDir().toAbsolutePath().normalize();
+        Path target = root.resolve(relative).normalize();
+        if (!target.startsWith(root)) {
+            sendError(exchange, 400, "Ruta fuera del contenido extraido: " + relative);
+            return;
+        }
+        if (Files.isDirectory(target)) {
+            List<String> files;
+            try (Stream<Path> walk = Files.walk(target)) {
+                files = walk.filter(Files::isRegularFile)
+                        .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            sendJson(exchange, 200, Map.of("files", files));
+            return;
+        }
+        String contentType = Files.probeContentType(target);
+        sendFile(exchange, target, contentType == null ? "application/octet-stream" : contentType,
+                target.getFileName().toString());
+    }
+
+    private static void sendFile(HttpExchange exchange, Path file, String contentType, String downloadName) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            sendError(exchange, 404, "No existe " + file.getFileName());
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (downloadName != null) {
+            exchange.getResponseHeaders().set("Content-Disposition",
+                    "attachment; filename=\"" + downloadName.replace("\"", "") + "\"");
+        }
+        exchange.sendResponseHeaders(200, Files.size(file));
+        try (OutputStream body = exchange.getResponseBody()) {
+            Files.copy(file, body);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = (Json.write(body) + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private static boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+        if (method.equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        sendError(exchange, 405, "Metodo no permitido: " + exchange.getRequestMethod());
+        return false;
+    }
+
+    /**
+     * El socket ya escucha solo en loopback; ademas se rechaza un Host ajeno para que una pagina
+     * web no pueda alcanzar el servicio con DNS rebinding.
+     */
+    private static boolean acceptLocal(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        String hostName = host == null ? "" : host.replaceFirst(":\\d+$", "").toLowerCase(Locale.ROOT);
+        boolean local = exchange.getRemoteAddress().getAddress().isLoopbackAddress()
+                && (hostName.equals("localhost") || hostName.equals("127.0.0.1") || hostName.equals("[::1]"));
+        if (!local) {
+            sendError(exchange, 403, "Solo se aceptan peticiones locales");
+        }
+        return local;
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && decode(pair.substring(0, equals)).equals(name)) {
+                return decode(pair.substring(equals + 1));
+            }
+        }
+        return null;
+    }
+
+    private static String decode(String raw) {
+        return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger next = new AtomicInteger(1);
+        return task -> {
+            Thread thread = new Thread(task, prefix + next.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private enum State {
+        QUEUED("queued"),
+        RUNNING("running"),
+        DONE("done"),
+        FAILED("failed");
+
+        private final String label;
+
+        State(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final long sequence;
+        private final String name;
+        private final Path upload;
+        private final long bytes;
+        private final Path outputDir;
+        private final Path framesDir;
+        private final RunMetrics metrics = new RunMetrics();
+        private final Instant createdAt = Instant.now();
+        private volatile State state = State.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile PayloadZipService.PayloadBuildResult result;
+        private volatile String error;
+
+        private Job(String id, long sequence, String name, Path upload, long bytes, Path outputDir, Path framesDir) {
+            this.id = id;
+            this.sequence = sequence;
+            this.name = name;
+            this.upload = upload;
+            this.bytes = bytes;
+            this.outputDir = outputDir;
+            this.framesDir = framesDir;
+        }
+
+        /** Etapa inferida de los timers de etapa que ya cerro la corrida. */
+        private String stage() {
+            if (state != State.RUNNING) {
+                return state.label;
+            }
+            if (metrics.timerCount("stage.decode") > 0) {
+                return "payload";
+            }
+            if (metrics.timerCount("stage.detect") > 0) {
+                return "decode";
+            }
+            if (metrics.timerCount("stage.extract") > 0 || metrics.timerCount("frame.read") > 0) {
+                return "detect";
+            }
+            return "extract";
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package app;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Payload QRDELTA1: el generador parte el archivo nuevo en bloques definidos por contenido y solo
+ * manda los que no estan en un archivo base que ambos lados ya tienen. El manifiesto (comprimido con
+ * deflate) es una lista de operaciones: copiar un rango del base o insertar bytes literales.
+ */
+final class DeltaPayload {
+    static final String TAG = "QRDELTA1";
+
+    private static final int MANIFEST_VERSION = 1;
+    private static final int OP_COPY = 0;
+    private static final int OP_LITERAL = 1;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private DeltaPayload() {
+    }
+
+    /** Con una carpeta se busca el archivo cuyo SHA-256 coincide, probando primero el del mismo nombre. */
+    static Path resolveBase(Path deltaBase, String baseSha256, String originalFileName) throws IOException {
+        if (deltaBase == null) {
+            throw new IllegalStateException("El payload es un delta contra un archivo base (SHA-256 "
+                    + baseSha256 + "); indique el base con --delta-base <archivo|carpeta>");
+        }
+        List<Path> candidates = new ArrayList<>();
+        if (Files.isDirectory(deltaBase)) {
+            if (originalFileName != null && !originalFileName.isBlank()) {
+                Path sameName = deltaBase.resolve(Path.of(originalFileName).getFileName().toString());
+                if (Files.isRegularFile(sameName)) {
+                    candidates.add(sameName);
+                }
+            }
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(deltaBase)) {
+                for (Path entry : entries) {
+                    if (Files.isRegularFile(entry) && !candidates.contains(entry)) {
+                        candidates.add(entry);
+                    }
+                }
+            }
+        } else if (Files.isRegularFile(deltaBase)) {
+            candidates.add(deltaBase);
+        } else {
+            throw new IllegalStateException("No existe el archivo base: " + deltaBase.toAbsolutePath());
+        }
+        for (Path candidate : candidates) {
+            if (sha256Hex(candidate).equalsIgnoreCase(baseSha256)) {
+                System.out.println("[delta] Archivo base: " + candidate.toAbsolutePath());
+                return candidate;
+            }
+        }
+        throw new IllegalStateException((Files.isDirectory(deltaBase) ? "Ningun archivo en " : "El archivo ")
+                + deltaBase.toAbsolutePath() + " no coincide con el SHA-256 del base del delta: " + baseSha256);
+    }
+
+    /** Reconstruye el archivo nuevo en output a partir del base y el manifiesto; devuelve los bytes escritos. */
+    static long apply(String base64Manifest, Path base, Path output, String expectedSha256) throws IOException {
+        long start = RunMetrics.start();
+        byte[] compressed;
+        try {
+            compressed = Base64.getDecoder().decode(base64Manifest);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("El manifiesto del delta no es Base64 valido.");
+        }
+
+        MessageDigest digest = sha256();
+        long copied = 0;
+        long literal = 0;
+        int operations;
+        try (DataInputStream manifest = new DataInputStream(
+                     new InflaterInputStream(new ByteArrayInputStream(compressed)));
+             FileChannel baseChannel = FileChannel.open(base, StandardOpenOption.READ);
+             OutputStream target = new DigestOutputStream(Files.newOutputStream(output,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), digest)) {
+            int version = (int) readVarLong(manifest);
+            if (version != MANIFEST_VERSION) {
+                throw new IllegalStateException("Version de manifiesto delta no soportada: " + version);
+            }
+            long newLength = readVarLong(manifest);
+            long baseLength = readVarLong(manifest);
+            operations = (int) readVarLong(manifest);
+            if (baseLength != baseChannel.size()) {
+                throw new IllegalStateException("El archivo base mide " + baseChannel.size()
+                        + " bytes y el delta espera " + baseLength);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES);
+            for (int i = 0; i < operations; i++) {
+                int op = manifest.readUnsignedByte();
+                if (op == OP_COPY) {
+                    long offset = readVarLong(manifest);
+                    long length = readVarLong(manifest);
+                    if (offset < 0 || length < 0 || offset + length > baseLength) {
+                        throw new IllegalStateException("Rango de copia fuera del archivo base: " + offset + "+" + length);
+                    }
+                    copyRange(baseChannel, offset, length, buffer, target);
+                    copied += length;
+                } else if (op == OP_LITERAL) {
+                    long length = readVarLong(manifest);
+                    byte[] bytes = new byte[Math.toIntExact(length)];
+                    manifest.readFully(bytes);
+                    target.write(bytes);
+                    literal += length;
+                } else {
+                    throw new IllegalStateException("Operacion desconocida en el manifiesto delta: " + op);
+                }
+            }
+            if (copied + literal != newLength) {
+                throw new IllegalStateException("El delta reconstruyo " + (copied + literal)
+                        + " bytes y se esperaban " + newLength);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(output);
+            throw ex;
+        }
+
+        String actual = toHex(digest.digest());
+        if (!actual.equalsIgnoreCase(expectedSha256)) {
+            Files.deleteIfExists(output);
+            throw new IllegalStateException("SHA-256 del archivo reconstruido con delta no coincide: esperado "
+                    + expectedSha256 + ", obtenido " + actual);
+        }
+        RunMetrics.current().stop("payload.delta_apply", start);
+        RunMetrics.current().count("payload.delta.copied_bytes", copied);
+        RunMetrics.current().count("payload.delta.literal_bytes", literal);
+        RunMetrics.current().count("payload.bytes", copied + literal);
+        System.out.println(String.format(Locale.US,
+                "[delta] %d operaciones: %d bytes copiados del base, %d bytes recibidos (%.1f%% del archivo)",
+                operations, copied, literal, copied + literal == 0 ? 0.0 : literal * 100.0 / (copied + literal)));
+        return copied + literal;
+    }
+
+    private static void copyRange(FileChannel base, long offset, long length, ByteBuffer buffer, OutputStream target)
+            throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = base.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("El archivo base termino antes de lo esperado");
+            }
+            target.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Entero demasiado largo en el manifiesto delta");
+    }
+
+    private static String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(String.format(Locale.US, "%02x", value & 0xFF));
+        }
+        return hex.toString();
+    }
+}
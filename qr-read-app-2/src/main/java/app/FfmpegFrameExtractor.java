@@ -3,14 +3,25 @@ package app;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 final class FfmpegFrameExtractor {
+    private static final double MIN_SEGMENT_SECONDS = 10.0;
+
     private FfmpegFrameExtractor() {
     }
 
     static void extractFrames(Path videoPath, Path tempFramesDir, int fps) throws IOException, InterruptedException {
-        String fpsFilter = "fps=" + fps;
+        extractFrames(videoPath, tempFramesDir, "fps=" + fps);
+    }
+
+    static void extractFrames(Path videoPath, Path tempFramesDir, String filter) throws IOException, InterruptedException {
         Path outputPattern = tempFramesDir.resolve("frame_%08d.png");
         List<String> command = List.of(
                 "ffmpeg",
@@ -18,10 +29,154 @@ final class FfmpegFrameExtractor {
                 "-loglevel", "error",
                 "-y",
                 "-i", videoPath.toString(),
-                "-vf", fpsFilter,
+                "-vf", filter,
                 outputPattern.toString()
         );
+        runFfmpeg(command);
+    }
+
+    static String grayPreviewFilter(int fps, int height) {
+        return "fps=" + fps + ",scale=-2:" + height + ":flags=area,format=gray";
+    }
+
+    static int extractFramesSegmented(Path videoPath, Path tempFramesDir, int fps, String filter, int segments)
+            throws IOException, InterruptedException {
+        double duration = probeDurationSeconds(videoPath);
+        int segmentCount = (int) Math.max(1, Math.min(segments, Math.floor(duration / MIN_SEGMENT_SECONDS)));
+        if (segmentCount <= 1) {
+            extractFrames(videoPath, tempFramesDir, filter);
+            return 1;
+        }
+
+        long totalFrames = (long) Math.ceil(duration * fps);
+        List<Path> segmentDirs = new ArrayList<>(segmentCount);
+        List<Future<Void>> pending = new ArrayList<>(segmentCount);
+        ExecutorService executor = Executors.newFixedThreadPool(segmentCount);
+        RunMetrics metrics = RunMetrics.current();
+        try {
+            for (int segment = 0; segment < segmentCount; segment++) {
+                long firstFrame = totalFrames * segment / segmentCount;
+                long endFrame = totalFrames * (segment + 1) / segmentCount;
+                double start = firstFrame / (double) fps;
+                double length = segment == segmentCount - 1 ? duration - start + 1.0 : (endFrame - firstFrame) / (double) fps;
+                Path segmentDir = tempFramesDir.resolve(String.format(Locale.US, "segment_%03d", segment));
+                FileUtils.clearDirectory(segmentDir);
+                segmentDirs.add(segmentDir);
+                pending.add(executor.submit(() -> {
+                    RunMetrics.bind(metrics);
+                    extractWindow(videoPath, segmentDir, filter, start, length);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : pending) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Fallo la extraccion segmentada: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int nextNumber = 1;
+        for (Path segmentDir : segmentDirs) {
+            nextNumber = FileUtils.moveFramesRenumbered(
+                    FileUtils.listPngFrames(segmentDir, "frame_"), tempFramesDir, nextNumber);
+            FileUtils.deleteRecursively(segmentDir);
+        }
+        return segmentCount;
+    }
+
+    static double probeDurationSeconds(Path videoPath) throws IOException, InterruptedException {
+        List<String> command = List.of(
+                "ffprobe",
+                "-v", "error",
+                "-show_entries", "format=duration",
+                "-of", "default=noprint_wrappers=1:nokey=1",
+                videoPath.toString()
+        );
+        String output = runProcess(command, "ffprobe").trim();
+        try {
+            return Double.parseDouble(output);
+        } catch (NumberFormatException ex) {
+            throw new IOException("ffprobe no devolvio una duracion valida: " + output);
+        }
+    }
+
+    static void extractWindow(
+            Path videoPath,
+            Path outputDir,
+            String filter,
+            double startSeconds,
+            double durationSeconds
+    ) throws IOException, InterruptedException {
+        Path outputPattern = outputDir.resolve("frame_%08d.png");
+        List<String> command = List.of(
+                "ffmpeg",
+                "-hide_banner",
+                "-loglevel", "error",
+                "-y",
+                "-ss", formatSeconds(startSeconds),
+                "-t", formatSeconds(durationSeconds),
+                "-i", videoPath.toString(),
+                "-vf", filter,
+                outputPattern.toString()
+        );
+        runFfmpeg(command);
+    }
+
+    static void extractSingleFrame(Path videoPath, Path target, double seconds) throws IOException, InterruptedException {
+        List<String> command = List.of(
+                "ffmpeg",
+                "-hide_banner",
+                "-loglevel", "error",
+                "-y",
+                "-ss", formatSeconds(seconds),
+                "-i", videoPath.toString(),
+                "-frames:v", "1",
+                target.toString()
+        );
+        runFfmpeg(command);
+    }
+
+    static Process startGrayPipe(String input, String inputFormat, boolean realtime, int fps) throws IOException {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-hide_banner", "-loglevel", "error", "-nostdin"));
+        if (realtime) {
+            command.add("-re");
+        }
+        if (inputFormat != null) {
+            command.add("-f");
+            command.add(inputFormat);
+        }
+        command.addAll(List.of(
+                "-i", input,
+                "-vf", "fps=" + fps + ",format=gray",
+                "-f", "image2pipe",
+                "-vcodec", "pgm",
+                "-"
+        ));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    static String formatSeconds(double seconds) {
+        return String.format(Locale.US, "%.6f", Math.max(0.0, seconds));
+    }
+
+    private static void runFfmpeg(List<String> command) throws IOException, InterruptedException {
+        long start = RunMetrics.start();
+        try {
+            runProcess(command, "ffmpeg");
+        } finally {
+            RunMetrics.current().stop("ffmpeg.run", start);
+        }
+    }
 
+    private static String runProcess(List<String> command, String toolName) throws IOException, InterruptedException {
         ProcessBuilder builder = new ProcessBuilder(command);
         builder.redirectErrorStream(true);
         Process process = builder.start();
@@ -29,7 +184,8 @@ final class FfmpegFrameExtractor {
         String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
         int exitCode = process.waitFor();
         if (exitCode != 0) {
-            throw new IOException("ffmpeg devolvio codigo " + exitCode + ". Salida: " + output);
+            throw new IOException(toolName + " devolvio codigo " + exitCode + ". Salida: " + output);
         }
+        return output;
     }
 }
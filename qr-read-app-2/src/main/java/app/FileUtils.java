@@ -3,15 +3,30 @@ package app;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 final class FileUtils {
+    private static final Set<String> VIDEO_EXTENSIONS = Set.of("mp4", "mkv", "mov", "avi", "webm", "m4v");
+
     private FileUtils() {
     }
 
+    static boolean hasVideoExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 && VIDEO_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    static String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+
     static List<Path> listPngFrames(Path directory, String prefix) throws IOException {
         try (Stream<Path> stream = Files.list(directory)) {
             return stream
@@ -24,6 +39,16 @@ final class FileUtils {
         }
     }
 
+    static int moveFramesRenumbered(List<Path> frames, Path targetDir, int firstNumber) throws IOException {
+        int number = firstNumber;
+        for (Path frame : frames) {
+            Path target = targetDir.resolve(String.format(Locale.US, "frame_%08d.png", number));
+            Files.move(frame, target, StandardCopyOption.REPLACE_EXISTING);
+            number++;
+        }
+        return number;
+    }
+
     static void deleteRecursively(Path root) {
         if (root == null || !Files.exists(root)) {
             return;
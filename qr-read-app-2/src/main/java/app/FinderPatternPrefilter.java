@@ -0,0 +1,247 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class FinderPatternPrefilter {
+    private static final int TARGET_MIN_SIDE = 540;
+    private static final int BLOCK_SIZE = 16;
+    private static final int MIN_BLOCK_CONTRAST = 24;
+    private static final int MIN_CANDIDATES = 2;
+    private static final int MIN_ROWS_PER_CANDIDATE = 2;
+    private static final int MIN_PATTERN_WIDTH = 7;
+    private static final double MERGE_DISTANCE_MODULES = 4.0;
+
+    private final boolean enabled;
+    private final int layoutDivisions;
+    private int checked;
+    private int rejected;
+
+    FinderPatternPrefilter(boolean enabled, SlideLayout layout) {
+        this.enabled = enabled;
+        this.layoutDivisions = Math.max(layout.columns(), layout.rows());
+    }
+
+    boolean mayContainQr(GrayFrame frame) {
+        if (!enabled) {
+            return true;
+        }
+        checked++;
+        if (countCandidates(frame) >= MIN_CANDIDATES) {
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    int checked() {
+        return checked;
+    }
+
+    int rejected() {
+        return rejected;
+    }
+
+    private int countCandidates(GrayFrame frame) {
+        int factor = Math.max(1, Math.min(frame.width(), frame.height()) / (TARGET_MIN_SIDE * layoutDivisions));
+        int width = frame.width() / factor;
+        int height = frame.height() / factor;
+        if (width < 21 || height < 21) {
+            return 0;
+        }
+        boolean[] dark = binarize(downsampleGray(frame, factor, width, height), width, height);
+
+        List<double[]> candidates = new ArrayList<>();
+        int[] runs = new int[width];
+        for (int y = 0; y < height; y++) {
+            int rowOffset = y * width;
+            int runCount = 0;
+            boolean firstDark = dark[rowOffset];
+            boolean current = firstDark;
+            int length = 0;
+            for (int x = 0; x < width; x++) {
+                if (dark[rowOffset + x] == current) {
+                    length++;
+                } else {
+                    runs[runCount++] = length;
+                    current = !current;
+                    length = 1;
+                }
+            }
+            runs[runCount++] = length;
+
+            int start = 0;
+            for (int i = 0; i + 4 < runCount; i++) {
+                boolean runIsDark = (i % 2 == 0) == firstDark;
+                if (runIsDark && isFinderRatio(runs[i], runs[i + 1], runs[i + 2], runs[i + 3], runs[i + 4])) {
+                    int total = runs[i] + runs[i + 1] + runs[i + 2] + runs[i + 3] + runs[i + 4];
+                    int centerX = start + runs[i] + runs[i + 1] + runs[i + 2] / 2;
+                    double module = total / 7.0;
+                    if (crossCheckVertical(dark, width, height, centerX, y, total)
+                            && addCandidate(candidates, centerX, y, module) >= MIN_CANDIDATES) {
+                        return MIN_CANDIDATES;
+                    }
+                }
+                start += runs[i];
+            }
+        }
+        return confirmedCount(candidates);
+    }
+
+    private static int[] downsampleGray(GrayFrame frame, int factor, int width, int height) {
+        int[] gray = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                gray[offset + x] = frame.get(x * factor, y * factor);
+            }
+        }
+        return gray;
+    }
+
+    private static boolean[] binarize(int[] gray, int width, int height) {
+        int blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] minimums = new int[blocksX * blocksY];
+        int[] thresholds = new int[blocksX * blocksY];
+        boolean[] contrasted = new boolean[blocksX * blocksY];
+        for (int blockY = 0; blockY < blocksY; blockY++) {
+            for (int blockX = 0; blockX < blocksX; blockX++) {
+                int min = 255;
+                int max = 0;
+                for (int y = blockY * BLOCK_SIZE; y < Math.min(height, (blockY + 1) * BLOCK_SIZE); y++) {
+                    for (int x = blockX * BLOCK_SIZE; x < Math.min(width, (blockX + 1) * BLOCK_SIZE); x++) {
+                        int value = gray[y * width + x];
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+                int block = blockY * blocksX + blockX;
+                minimums[block] = min;
+                thresholds[block] = (min + max) / 2;
+                contrasted[block] = max - min >= MIN_BLOCK_CONTRAST;
+            }
+        }
+
+        boolean[] dark = new boolean[gray.length];
+        for (int blockY = 0; blockY < blocksY; blockY++) {
+            for (int blockX = 0; blockX < blocksX; blockX++) {
+                int threshold = blockThreshold(blockX, blockY, blocksX, blocksY, minimums, thresholds, contrasted);
+                for (int y = blockY * BLOCK_SIZE; y < Math.min(height, (blockY + 1) * BLOCK_SIZE); y++) {
+                    for (int x = blockX * BLOCK_SIZE; x < Math.min(width, (blockX + 1) * BLOCK_SIZE); x++) {
+                        dark[y * width + x] = gray[y * width + x] < threshold;
+                    }
+                }
+            }
+        }
+        return dark;
+    }
+
+    private static int blockThreshold(
+            int blockX,
+            int blockY,
+            int blocksX,
+            int blocksY,
+            int[] minimums,
+            int[] thresholds,
+            boolean[] contrasted
+    ) {
+        int block = blockY * blocksX + blockX;
+        if (contrasted[block]) {
+            return thresholds[block];
+        }
+        int sum = 0;
+        int count = 0;
+        for (int y = Math.max(0, blockY - 1); y <= Math.min(blocksY - 1, blockY + 1); y++) {
+            for (int x = Math.max(0, blockX - 1); x <= Math.min(blocksX - 1, blockX + 1); x++) {
+                int neighbor = y * blocksX + x;
+                if (contrasted[neighbor]) {
+                    sum += thresholds[neighbor];
+                    count++;
+                }
+            }
+        }
+        return count > 0 ? sum / count : minimums[block] / 2;
+    }
+
+    private static boolean crossCheckVertical(boolean[] dark, int width, int height, int centerX, int centerY, int horizontalTotal) {
+        int[] counts = new int[5];
+        int y = centerY;
+        while (y >= 0 && dark[y * width + centerX]) {
+            counts[2]++;
+            y--;
+        }
+        while (y >= 0 && !dark[y * width + centerX]) {
+            counts[1]++;
+            y--;
+        }
+        while (y >= 0 && dark[y * width + centerX]) {
+            counts[0]++;
+            y--;
+        }
+        y = centerY + 1;
+        while (y < height && dark[y * width + centerX]) {
+            counts[2]++;
+            y++;
+        }
+        while (y < height && !dark[y * width + centerX]) {
+            counts[3]++;
+            y++;
+        }
+        while (y < height && dark[y * width + centerX]) {
+            counts[4]++;
+            y++;
+        }
+
+        int verticalTotal = counts[0] + counts[1] + counts[2] + counts[3] + counts[4];
+        return Math.abs(verticalTotal - horizontalTotal) * 2 < horizontalTotal
+                && isFinderRatio(counts[0], counts[1], counts[2], counts[3], counts[4]);
+    }
+
+    private static boolean isFinderRatio(int a, int b, int c, int d, int e) {
+        if (a == 0 || b == 0 || c == 0 || d == 0 || e == 0) {
+            return false;
+        }
+        int total = a + b + c + d + e;
+        if (total < MIN_PATTERN_WIDTH) {
+            return false;
+        }
+        double module = total / 7.0;
+        double maxVariance = module / 2.0;
+        return Math.abs(module - a) < maxVariance
+                && Math.abs(module - b) < maxVariance
+                && Math.abs(3.0 * module - c) < 3.0 * maxVariance
+                && Math.abs(module - d) < maxVariance
+                && Math.abs(module - e) < maxVariance;
+    }
+
+    private static int addCandidate(List<double[]> candidates, int centerX, int centerY, double module) {
+        boolean merged = false;
+        for (double[] candidate : candidates) {
+            double mergeDistance = Math.max(candidate[2], module) * MERGE_DISTANCE_MODULES;
+            if (Math.abs(candidate[0] - centerX) <= mergeDistance && Math.abs(candidate[1] - centerY) <= mergeDistance) {
+                candidate[3]++;
+                merged = true;
+                break;
+            }
+        }
+        if (!merged) {
+            candidates.add(new double[] {centerX, centerY, module, 1});
+        }
+        return confirmedCount(candidates);
+    }
+
+    private static int confirmedCount(List<double[]> candidates) {
+        int confirmed = 0;
+        for (double[] candidate : candidates) {
+            if (candidate[3] >= MIN_ROWS_PER_CANDIDATE) {
+                confirmed++;
+            }
+        }
+        return confirmed;
+    }
+}
@@ -0,0 +1,308 @@
+package app;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+final class FrameBufferPool {
+    private static final int DEFAULT_CAPACITY = 12;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final FrameBufferPool SHARED = new FrameBufferPool(DEFAULT_CAPACITY);
+
+    private final int baseCapacity;
+    private final Map<Integer, ArrayDeque<byte[]>> free = new HashMap<>();
+    private final Map<String, ArrayDeque<BufferedImage>> freeTargets = new HashMap<>();
+    private int capacity;
+    private int freeCount;
+    private int leased;
+    private int peakLeased;
+    private int allocated;
+    private int reused;
+
+    FrameBufferPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad del pool debe ser > 0");
+        }
+        this.baseCapacity = capacity;
+        this.capacity = capacity;
+    }
+
+    static FrameBufferPool shared() {
+        return SHARED;
+    }
+
+    /** Con varios videos en paralelo cada job necesita su propia tanda de planos. */
+    synchronized void reserveForJobs(int jobs) {
+        capacity = Math.max(capacity, baseCapacity * Math.max(1, jobs));
+        notifyAll();
+    }
+
+    GrayFrame read(Path path) throws IOException {
+        long start = RunMetrics.start();
+        ReaderEvents.FrameExtracted event = new ReaderEvents.FrameExtracted();
+        event.begin();
+        Lease lease = decode(path, 1);
+        if (lease == null) {
+            return null;
+        }
+        try {
+            return GrayFrame.fromImage(lease.image, lease.planes[0], this);
+        } catch (RuntimeException ex) {
+            release(lease.planes[0]);
+            throw ex;
+        } finally {
+            releaseTarget(lease);
+            RunMetrics.current().stop("frame.read", start);
+            commitExtracted(event, path, "png", lease.image);
+        }
+    }
+
+    GrayFrame[] readChannels(Path path) throws IOException {
+        long start = RunMetrics.start();
+        ReaderEvents.FrameExtracted event = new ReaderEvents.FrameExtracted();
+        event.begin();
+        Lease lease = decode(path, 3);
+        if (lease == null) {
+            return null;
+        }
+        try {
+            return GrayFrame.splitChannels(lease.image, lease.planes, this);
+        } catch (RuntimeException ex) {
+            for (byte[] plane : lease.planes) {
+                release(plane);
+            }
+            throw ex;
+        } finally {
+            releaseTarget(lease);
+            RunMetrics.current().stop("frame.read", start);
+            commitExtracted(event, path, "png-rgb", lease.image);
+        }
+    }
+
+    GrayFrame read(InputStream input, int width, int height) throws IOException {
+        ReaderEvents.FrameExtracted event = new ReaderEvents.FrameExtracted();
+        event.begin();
+        int length = width * height;
+        byte[] plane = acquire(length, 1, 0, 0, null).planes[0];
+        try {
+            int offset = 0;
+            while (offset < length) {
+                int read = input.read(plane, offset, length - offset);
+                if (read < 0) {
+                    throw new EOFException("Frame incompleto: " + offset + " de " + length + " bytes");
+                }
+                offset += read;
+            }
+            if (event.shouldCommit()) {
+                event.source = "pipe";
+                event.width = width;
+                event.height = height;
+                event.commit();
+            }
+            return GrayFrame.pooled(plane, width, height, this);
+        } catch (IOException | RuntimeException ex) {
+            release(plane);
+            throw ex;
+        }
+    }
+
+    private static void commitExtracted(ReaderEvents.FrameExtracted event, Path path, String source, BufferedImage image) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.frame = String.valueOf(path.getFileName());
+            event.source = source;
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.commit();
+        }
+    }
+
+    synchronized void release(byte[] plane) {
+        leased--;
+        if (freeCount + leased < capacity) {
+            free.computeIfAbsent(plane.length, size -> new ArrayDeque<>()).addLast(plane);
+            freeCount++;
+        }
+        notifyAll();
+    }
+
+    /** La imagen destino de ImageIO solo vive mientras se copian sus pixeles a los planos. */
+    private synchronized void releaseTarget(Lease lease) {
+        leased--;
+        if (lease.target != null && freeCount + leased < capacity) {
+            freeTargets.computeIfAbsent(lease.targetKey, key -> new ArrayDeque<>()).addLast(lease.target);
+            freeCount++;
+        }
+        notifyAll();
+    }
+
+    synchronized int allocated() {
+        return allocated;
+    }
+
+    synchronized int reused() {
+        return reused;
+    }
+
+    synchronized int peakLeased() {
+        return peakLeased;
+    }
+
+    synchronized int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Los planos de un mismo frame (y la imagen donde ImageIO decodifica el PNG) se
+     * piden juntos: si cada uno se pidiera por separado, varios lectores podrian quedarse con
+     * buffers sueltos esperando el resto hasta agotar el pool. La imagen ocupa un lugar del pool
+     * igual que un plano, asi la memoria de frames sigue acotada por la capacidad.
+     */
+    private synchronized Lease acquire(int size, int count, int width, int height, ImageTypeSpecifier type)
+            throws IOException {
+        boolean imageSlot = width > 0;
+        int slots = imageSlot ? count + 1 : count;
+        if (slots > capacity) {
+            throw new IllegalStateException("Un frame necesita " + slots + " buffers y el pool tiene " + capacity);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(ACQUIRE_TIMEOUT_SECONDS);
+        while (leased + slots > capacity) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("Pool de buffers de frame agotado (" + capacity + " en uso)");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando un buffer de frame");
+            }
+        }
+        leased += slots;
+        peakLeased = Math.max(peakLeased, leased);
+        ArrayDeque<byte[]> sameSize = free.get(size);
+        byte[][] planes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            byte[] plane = sameSize == null ? null : sameSize.pollFirst();
+            if (plane != null) {
+                freeCount--;
+                reused++;
+            } else {
+                evictOther(size, null);
+                allocated++;
+                plane = new byte[size];
+            }
+            planes[i] = plane;
+        }
+        if (type == null) {
+            // Sin tipo reutilizable ImageIO crea la imagen, pero igual ocupa su lugar en el pool.
+            return new Lease(planes, null, null);
+        }
+        String targetKey = width + "x" + height + ":" + type.getBufferedImageType();
+        ArrayDeque<BufferedImage> sameTarget = freeTargets.get(targetKey);
+        BufferedImage target = sameTarget == null ? null : sameTarget.pollFirst();
+        if (target != null) {
+            freeCount--;
+        } else {
+            evictOther(-1, targetKey);
+            target = type.createBufferedImage(width, height);
+        }
+        return new Lease(planes, target, targetKey);
+    }
+
+    /** Mantiene libres + prestados dentro de la capacidad soltando un buffer de otra resolucion. */
+    private void evictOther(int size, String targetKey) {
+        if (freeCount + leased <= capacity) {
+            return;
+        }
+        if (evictFrom(free, size) || evictFrom(freeTargets, targetKey) || evictFrom(free, null)) {
+            return;
+        }
+        evictFrom(freeTargets, null);
+    }
+
+    private <K, V> boolean evictFrom(Map<K, ArrayDeque<V>> lists, Object keep) {
+        Iterator<Map.Entry<K, ArrayDeque<V>>> entries = lists.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<K, ArrayDeque<V>> entry = entries.next();
+            if (!entry.getKey().equals(keep) && entry.getValue().pollFirst() != null) {
+                freeCount--;
+                if (entry.getValue().isEmpty()) {
+                    entries.remove();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Decodifica con la imagen destino y los planos ya tomados del pool; null si no es una imagen legible. */
+    private Lease decode(Path path, int planeCount) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                ImageTypeSpecifier type = types.hasNext() ? types.next() : null;
+                if (type != null && type.getBufferedImageType() == BufferedImage.TYPE_CUSTOM) {
+                    type = null;
+                }
+                Lease lease = acquire(width * height, planeCount, width, height, type);
+                try {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    if (lease.target != null) {
+                        param.setDestination(lease.target);
+                    }
+                    lease.image = reader.read(0, param);
+                    if (lease.image.getWidth() != width || lease.image.getHeight() != height) {
+                        throw new IOException("Dimensiones inesperadas al decodificar " + path.getFileName());
+                    }
+                    return lease;
+                } catch (IOException | RuntimeException ex) {
+                    for (byte[] plane : lease.planes) {
+                        release(plane);
+                    }
+                    releaseTarget(lease);
+                    throw ex;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static final class Lease {
+        private final byte[][] planes;
+        private final BufferedImage target;
+        private final String targetKey;
+        private BufferedImage image;
+
+        private Lease(byte[][] planes, BufferedImage target, String targetKey) {
+            this.planes = planes;
+            this.target = target;
+            this.targetKey = targetKey;
+        }
+    }
+}
@@ -1,11 +1,7 @@
 package app;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -16,15 +12,28 @@ final class FrameChangeDetector {
     private FrameChangeDetector() {
     }
 
-    static void prepareFramesOutputDir(Path framesOutputDir) throws IOException {
-        FileUtils.clearDirectory(framesOutputDir);
-    }
-
     static DetectionResult detectChanges(
             List<Path> sourceFrames,
-            Path framesOutputDir,
             double threshold,
             int analysisSize
+    ) throws IOException {
+        return detectChanges(
+                sourceFrames,
+                ChangeThreshold.fixed(threshold),
+                analysisSize,
+                Selection.FIRST,
+                FrameSink.off(),
+                ChunkJournal.disabled()
+        );
+    }
+
+    static DetectionResult detectChanges(
+            List<Path> sourceFrames,
+            ChangeThreshold threshold,
+            int analysisSize,
+            Selection selection,
+            FrameSink sink,
+            ChunkJournal journal
     ) throws IOException {
         FrameSignature previousSignature = null;
         int totalFrames = 0;
@@ -32,20 +41,18 @@ final class FrameChangeDetector {
         int detectedChanges = 0;
         double maxDiff = 0.0;
         List<Path> detectedFrames = new ArrayList<>();
+        StableRun run = null;
 
         for (Path framePath : sourceFrames) {
             totalFrames++;
-            BufferedImage image = ImageIO.read(framePath.toFile());
-            if (image == null) {
-                continue;
-            }
-
-            BufferedImage analysisRegion = centerSquareCrop(image, ANALYSIS_CROP_RATIO);
-            if (analysisRegion == null) {
-                analysisRegion = image;
+            FrameSignature signature = journal.signature(framePath, analysisSize);
+            if (signature == null) {
+                signature = readSignature(framePath, analysisSize);
+                if (signature == null) {
+                    continue;
+                }
+                journal.recordSignature(framePath, signature);
             }
-
-            FrameSignature signature = FrameSignature.from(analysisRegion, analysisSize);
             if (previousSignature != null) {
                 comparedFrames++;
                 double diff = signature.distance(previousSignature);
@@ -53,35 +60,132 @@ final class FrameChangeDetector {
                     maxDiff = diff;
                 }
 
-                if (diff >= threshold) {
+                double appliedThreshold = threshold.current();
+                if (threshold.isChange(diff)) {
                     detectedChanges++;
-                    String targetName = String.format(Locale.US, "change_%04d_%s",
-                            detectedChanges, framePath.getFileName());
-                    Path targetPath = framesOutputDir.resolve(targetName);
-                    Files.copy(framePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                    detectedFrames.add(targetPath);
-
-                    System.out.println(String.format(Locale.US,
-                            "[%04d] Cambio detectado | diff=%.4f | frame=%s",
-                            detectedChanges, diff, framePath.getFileName()));
+                    commitChange(detectedChanges, framePath.getFileName().toString(), diff, appliedThreshold);
+                    if (selection == Selection.SHARPEST) {
+                        closeRun(run, sink, detectedFrames);
+                        run = new StableRun(detectedChanges, diff, appliedThreshold, framePath, signature.sharpness());
+                    } else {
+                        detectedFrames.add(framePath);
+                        sink.detected(framePath, detectedChanges);
+                        System.out.println(String.format(Locale.US,
+                                "[%04d] Cambio detectado | diff=%.4f | thr=%.4f | frame=%s",
+                                detectedChanges, diff, appliedThreshold, framePath.getFileName()));
+                    }
+                } else if (run != null) {
+                    run.offer(framePath, signature.sharpness());
                 }
             }
             previousSignature = signature;
         }
+        closeRun(run, sink, detectedFrames);
+
+        return new DetectionResult(
+                totalFrames,
+                comparedFrames,
+                detectedChanges,
+                maxDiff,
+                threshold.isAdaptive(),
+                threshold.minUsed(),
+                threshold.maxUsed(),
+                detectedFrames
+        );
+    }
+
+    static void commitChange(int change, String frame, double diff, double threshold) {
+        ReaderEvents.ChangeDetected event = new ReaderEvents.ChangeDetected();
+        if (event.shouldCommit()) {
+            event.change = change;
+            event.frame = frame;
+            event.diff = diff;
+            event.threshold = threshold;
+            event.commit();
+        }
+    }
+
+    private static void closeRun(StableRun run, FrameSink sink, List<Path> detectedFrames) {
+        if (run == null) {
+            return;
+        }
+        detectedFrames.add(run.sharpestFrame);
+        sink.detected(run.sharpestFrame, run.changeNumber);
+        System.out.println(String.format(Locale.US,
+                "[%04d] Cambio detectado | diff=%.4f | thr=%.4f | frame=%s | nitidez=%.4f (mejor de %d, cambio en %s)",
+                run.changeNumber,
+                run.changeDiff,
+                run.threshold,
+                run.sharpestFrame.getFileName(),
+                run.bestSharpness,
+                run.frameCount,
+                run.changeFrame.getFileName()));
+    }
+
+    /** Un frame que ya no esta (reanudado del journal) sale como null de read, sin stat previo. */
+    private static FrameSignature readSignature(Path framePath, int analysisSize) throws IOException {
+        GrayFrame frame = FrameBufferPool.shared().read(framePath);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            return signatureOf(frame, analysisSize);
+        } finally {
+            frame.release();
+        }
+    }
 
-        return new DetectionResult(totalFrames, comparedFrames, detectedChanges, maxDiff, detectedFrames);
+    static FrameSignature signatureOf(GrayFrame frame, int analysisSize) {
+        GrayFrame analysisRegion = centerSquareCrop(frame, ANALYSIS_CROP_RATIO);
+        if (analysisRegion == null) {
+            analysisRegion = frame;
+        }
+        return FrameSignature.from(analysisRegion, analysisSize);
     }
 
-    private static BufferedImage centerSquareCrop(BufferedImage image, double sideRatio) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private static GrayFrame centerSquareCrop(GrayFrame frame, double sideRatio) {
+        int width = frame.width();
+        int height = frame.height();
         int side = (int) Math.round(Math.min(width, height) * sideRatio);
         if (side < 32) {
             return null;
         }
         int x = (width - side) / 2;
         int y = (height - side) / 2;
-        return image.getSubimage(Math.max(0, x), Math.max(0, y), Math.min(side, width), Math.min(side, height));
+        return frame.crop(Math.max(0, x), Math.max(0, y), Math.min(side, width), Math.min(side, height));
+    }
+
+    enum Selection {
+        FIRST,
+        SHARPEST
+    }
+
+    private static final class StableRun {
+        private final int changeNumber;
+        private final double changeDiff;
+        private final double threshold;
+        private final Path changeFrame;
+        private Path sharpestFrame;
+        private double bestSharpness;
+        private int frameCount;
+
+        private StableRun(int changeNumber, double changeDiff, double threshold, Path changeFrame, double sharpness) {
+            this.changeNumber = changeNumber;
+            this.changeDiff = changeDiff;
+            this.threshold = threshold;
+            this.changeFrame = changeFrame;
+            this.sharpestFrame = changeFrame;
+            this.bestSharpness = sharpness;
+            this.frameCount = 1;
+        }
+
+        private void offer(Path framePath, double sharpness) {
+            frameCount++;
+            if (sharpness > bestSharpness) {
+                bestSharpness = sharpness;
+                sharpestFrame = framePath;
+            }
+        }
     }
 
     static final class DetectionResult {
@@ -89,6 +193,9 @@ final class FrameChangeDetector {
         private final int comparedFrames;
         private final int detectedChanges;
         private final double maxDiff;
+        private final boolean adaptiveThreshold;
+        private final double minThreshold;
+        private final double maxThreshold;
         private final List<Path> detectedFrames;
 
         private DetectionResult(
@@ -96,12 +203,18 @@ final class FrameChangeDetector {
                 int comparedFrames,
                 int detectedChanges,
                 double maxDiff,
+                boolean adaptiveThreshold,
+                double minThreshold,
+                double maxThreshold,
                 List<Path> detectedFrames
         ) {
             this.totalFrames = totalFrames;
             this.comparedFrames = comparedFrames;
             this.detectedChanges = detectedChanges;
             this.maxDiff = maxDiff;
+            this.adaptiveThreshold = adaptiveThreshold;
+            this.minThreshold = minThreshold;
+            this.maxThreshold = maxThreshold;
             this.detectedFrames = List.copyOf(detectedFrames);
         }
 
@@ -121,6 +234,18 @@ final class FrameChangeDetector {
             return maxDiff;
         }
 
+        boolean adaptiveThreshold() {
+            return adaptiveThreshold;
+        }
+
+        double minThreshold() {
+            return minThreshold;
+        }
+
+        double maxThreshold() {
+            return maxThreshold;
+        }
+
         List<Path> detectedFrames() {
             return detectedFrames;
         }
@@ -0,0 +1,12 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+interface FrameResolver {
+    Path resolve(Path frame) throws IOException;
+
+    static FrameResolver identity() {
+        return frame -> frame;
+    }
+}
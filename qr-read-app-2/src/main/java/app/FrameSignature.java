@@ -1,17 +1,20 @@
 package app;
 
-import java.awt.image.BufferedImage;
-
 final class FrameSignature {
     private final double[] values;
+    private final int size;
 
-    private FrameSignature(double[] values) {
+    private FrameSignature(double[] values, int size) {
         this.values = values;
+        this.size = size;
     }
 
-    static FrameSignature from(BufferedImage image, int size) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    static FrameSignature from(GrayFrame frame, int size) {
+        long start = RunMetrics.start();
+        ReaderEvents.SignatureComputed event = new ReaderEvents.SignatureComputed();
+        event.begin();
+        int width = frame.width();
+        int height = frame.height();
         double[] values = new double[size * size];
         int idx = 0;
 
@@ -19,28 +22,67 @@ final class FrameSignature {
             int sy = sampleCoord(y, size, height);
             for (int x = 0; x < size; x++) {
                 int sx = sampleCoord(x, size, width);
-                int rgb = image.getRGB(sx, sy);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                int gray = (r * 299 + g * 587 + b * 114) / 1000;
-                values[idx++] = gray / 255.0;
+                values[idx++] = frame.get(sx, sy) / 255.0;
             }
         }
-        return new FrameSignature(values);
+        RunMetrics.current().stop("frame.signature", start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.analysisSize = size;
+            event.commit();
+        }
+        return new FrameSignature(values, size);
+    }
+
+    static FrameSignature fromBytes(byte[] bytes, int size) {
+        if (bytes.length != size * size) {
+            throw new IllegalArgumentException("La firma no mide " + size + "x" + size);
+        }
+        double[] values = new double[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            values[i] = (bytes[i] & 0xFF) / 255.0;
+        }
+        return new FrameSignature(values, size);
+    }
+
+    byte[] toBytes() {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) Math.round(values[i] * 255.0);
+        }
+        return bytes;
     }
 
     double distance(FrameSignature other) {
         if (other == null || other.values.length != values.length) {
             return 1.0;
         }
+        long start = RunMetrics.start();
         double sum = 0.0;
         for (int i = 0; i < values.length; i++) {
             sum += Math.abs(values[i] - other.values[i]);
         }
+        RunMetrics.current().stop("frame.diff", start);
         return sum / values.length;
     }
 
+    double sharpness() {
+        if (size < 2) {
+            return 0.0;
+        }
+        double energy = 0.0;
+        for (int y = 0; y < size - 1; y++) {
+            int row = y * size;
+            for (int x = 0; x < size - 1; x++) {
+                double center = values[row + x];
+                double dx = values[row + x + 1] - center;
+                double dy = values[row + size + x] - center;
+                energy += dx * dx + dy * dy;
+            }
+        }
+        return energy / ((size - 1.0) * (size - 1.0));
+    }
+
     private static int sampleCoord(int n, int size, int max) {
         if (max <= 1 || size <= 1) {
             return 0;
@@ -0,0 +1,35 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+interface FrameSink extends AutoCloseable {
+    void detected(Path frame, int changeNumber);
+
+    void decodeFailed(Path frame);
+
+    @Override
+    void close() throws IOException;
+
+    static FrameSink off() {
+        return new FrameSink() {
+            @Override
+            public void detected(Path frame, int changeNumber) {
+            }
+
+            @Override
+            public void decodeFailed(Path frame) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    enum Mode {
+        OFF,
+        ASYNC,
+        FAILED
+    }
+}
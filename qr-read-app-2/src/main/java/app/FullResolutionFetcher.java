@@ -0,0 +1,93 @@
+package app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class FullResolutionFetcher implements FrameResolver, AutoCloseable {
+    private static final int MAX_PARALLEL_SEEKS = 4;
+
+    private final Path videoPath;
+    private final Path fullResolutionDir;
+    private final int fps;
+    private final ExecutorService executor;
+    private final Map<Integer, CompletableFuture<Path>> fetched = new ConcurrentHashMap<>();
+    private final AtomicInteger seeks = new AtomicInteger();
+
+    FullResolutionFetcher(Path videoPath, Path fullResolutionDir, int fps) throws IOException {
+        this.videoPath = videoPath;
+        this.fullResolutionDir = fullResolutionDir;
+        this.fps = fps;
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_PARALLEL_SEEKS, Runtime.getRuntime().availableProcessors())));
+        Files.createDirectories(fullResolutionDir);
+    }
+
+    void prefetch(List<Path> frames) {
+        for (Path frame : frames) {
+            int number = QrFrameReader.extractFrameNumber(frame);
+            if (number > 0) {
+                fetchAsync(number);
+            }
+        }
+    }
+
+    @Override
+    public Path resolve(Path frame) throws IOException {
+        int number = QrFrameReader.extractFrameNumber(frame);
+        if (number <= 0) {
+            return frame;
+        }
+        try {
+            return fetchAsync(number).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando el frame " + number + " a resolucion completa");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException ? ex.getCause().getCause() : ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("No se pudo extraer el frame " + number + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    int seeks() {
+        return seeks.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Path> fetchAsync(int number) {
+        return fetched.computeIfAbsent(number, key -> CompletableFuture.supplyAsync(() -> {
+            Path target = fullResolutionDir.resolve(String.format(Locale.US, "frame_%08d.png", key));
+            try {
+                FfmpegFrameExtractor.extractSingleFrame(videoPath, target, (key - 1) / (double) fps);
+                if (!Files.exists(target)) {
+                    throw new IOException("ffmpeg no devolvio el frame " + key + " a resolucion completa");
+                }
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            }
+            seeks.incrementAndGet();
+            return target;
+        }, executor));
+    }
+}
@@ -0,0 +1,204 @@
+package app;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+
+final class GrayFrame {
+    private final byte[] data;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private FrameBufferPool owner;
+
+    private GrayFrame(byte[] data, int dataWidth, int dataHeight, int left, int top, int width, int height) {
+        this.data = data;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    static GrayFrame wrap(byte[] data, int width, int height) {
+        if (data.length < width * height) {
+            throw new IllegalArgumentException("El buffer gris es menor que " + width + "x" + height);
+        }
+        return new GrayFrame(data, width, height, 0, 0, width, height);
+    }
+
+    static GrayFrame pooled(byte[] data, int width, int height, FrameBufferPool owner) {
+        GrayFrame frame = wrap(data, width, height);
+        frame.owner = owner;
+        return frame;
+    }
+
+    static GrayFrame fromImage(BufferedImage image, byte[] gray, FrameBufferPool owner) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        GrayFrame frame = wrap(gray, width, height);
+        frame.owner = owner;
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY && hasPackedRaster(image, width)) {
+            System.arraycopy(((DataBufferByte) image.getRaster().getDataBuffer()).getData(), 0, gray, 0, width * height);
+            return frame;
+        }
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && hasPackedRaster(image, width * 3)) {
+            byte[] bgr = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            for (int i = 0, p = 0; i < width * height; i++, p += 3) {
+                gray[i] = luminance(bgr[p + 2] & 0xFF, bgr[p + 1] & 0xFF, bgr[p] & 0xFF);
+            }
+            return frame;
+        }
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                && hasPackedRaster(image, width)) {
+            int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int i = 0; i < width * height; i++) {
+                gray[i] = luminance(rgb[i]);
+            }
+            return frame;
+        }
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                gray[offset + x] = luminance(row[x]);
+            }
+        }
+        return frame;
+    }
+
+    static GrayFrame[] splitChannels(BufferedImage image, byte[][] planes, FrameBufferPool owner) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                planes[0][offset + x] = (byte) (rgb >> 16);
+                planes[1][offset + x] = (byte) (rgb >> 8);
+                planes[2][offset + x] = (byte) rgb;
+            }
+        }
+        GrayFrame[] frames = new GrayFrame[planes.length];
+        for (int channel = 0; channel < planes.length; channel++) {
+            frames[channel] = wrap(planes[channel], width, height);
+            frames[channel].owner = owner;
+        }
+        return frames;
+    }
+
+    static void releaseAll(GrayFrame[] frames) {
+        if (frames == null) {
+            return;
+        }
+        for (GrayFrame frame : frames) {
+            frame.release();
+        }
+    }
+
+    void release() {
+        if (owner != null) {
+            FrameBufferPool pool = owner;
+            owner = null;
+            pool.release(data);
+        }
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int get(int x, int y) {
+        return data[(top + y) * dataWidth + left + x] & 0xFF;
+    }
+
+    GrayFrame crop(int x, int y, int cropWidth, int cropHeight) {
+        if (x < 0 || y < 0 || cropWidth <= 0 || cropHeight <= 0 || x + cropWidth > width || y + cropHeight > height) {
+            throw new IllegalArgumentException("Recorte fuera del frame: " + x + "," + y + " " + cropWidth + "x" + cropHeight);
+        }
+        return new GrayFrame(data, dataWidth, dataHeight, left + x, top + y, cropWidth, cropHeight);
+    }
+
+    GrayFrame scale(double factor) {
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+        int[] sourceX = new int[targetWidth];
+        int[] fractionX = new int[targetWidth];
+        fillSampling(width, targetWidth, sourceX, fractionX);
+        int[] sourceY = new int[targetHeight];
+        int[] fractionY = new int[targetHeight];
+        fillSampling(height, targetHeight, sourceY, fractionY);
+
+        byte[] scaled = new byte[targetWidth * targetHeight];
+        for (int y = 0; y < targetHeight; y++) {
+            int row0 = (top + sourceY[y]) * dataWidth + left;
+            int row1 = (top + Math.min(sourceY[y] + 1, height - 1)) * dataWidth + left;
+            int fy = fractionY[y];
+            int offset = y * targetWidth;
+            for (int x = 0; x < targetWidth; x++) {
+                int x0 = sourceX[x];
+                int x1 = Math.min(x0 + 1, width - 1);
+                int fx = fractionX[x];
+                int a = data[row0 + x0] & 0xFF;
+                int b = data[row0 + x1] & 0xFF;
+                int c = data[row1 + x0] & 0xFF;
+                int d = data[row1 + x1] & 0xFF;
+                int upper = (a << 16) + (b - a) * fx;
+                int lower = (c << 16) + (d - c) * fx;
+                long value = ((long) upper << 16) + (long) (lower - upper) * fy;
+                scaled[offset + x] = (byte) ((value + (1L << 31)) >> 32);
+            }
+        }
+        return wrap(scaled, targetWidth, targetHeight);
+    }
+
+    LuminanceSource luminanceSource() {
+        return new PlanarYUVLuminanceSource(data, dataWidth, dataHeight, left, top, width, height, false);
+    }
+
+    private static void fillSampling(int sourceSize, int targetSize, int[] index, int[] fraction) {
+        long step = ((long) sourceSize << 16) / targetSize;
+        for (int i = 0; i < targetSize; i++) {
+            long position = Math.max(0L, i * step + (step >> 1) - (1L << 15));
+            int whole = (int) (position >> 16);
+            if (whole >= sourceSize - 1) {
+                index[i] = sourceSize - 1;
+                fraction[i] = 0;
+            } else {
+                index[i] = whole;
+                fraction[i] = (int) (position & 0xFFFF);
+            }
+        }
+    }
+
+    private static boolean hasPackedRaster(BufferedImage image, int scanline) {
+        return image.getRaster().getParent() == null
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0
+                && image.getRaster().getDataBuffer().getNumBanks() == 1
+                && image.getRaster().getDataBuffer().getSize() == scanline * image.getHeight();
+    }
+
+    private static byte luminance(int rgb) {
+        return luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    private static byte luminance(int r, int g, int b) {
+        return (byte) ((306 * r + 601 * g + 117 * b + 0x200) >> 10);
+    }
+}
@@ -0,0 +1,383 @@
+package app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrada por carpeta de imagenes (rafaga de fotos o capturas de pantalla). No usa ffmpeg ni
+ * deteccion de cambios: cada imagen es un slide. Varios hilos toman la siguiente imagen de la
+ * lista, la leen, la decodifican y devuelven el buffer, asi que en memoria solo hay una imagen
+ * por hilo.
+ */
+final class ImageSequenceInput {
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("png", "jpg", "jpeg");
+    private static final int EXIF_SCAN_BYTES = 128 * 1024;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss", Locale.ROOT);
+
+    enum Order {
+        NAME,
+        MTIME,
+        EXIF
+    }
+
+    private ImageSequenceInput() {
+    }
+
+    static PayloadZipService.PayloadBuildResult run(AppConfig config) throws IOException {
+        List<Path> images = listImages(config.imagesDir(), config.imageOrder());
+        if (images.isEmpty()) {
+            throw new IllegalStateException("No hay imagenes PNG/JPEG en " + config.imagesDir().toAbsolutePath());
+        }
+        SlideLayout layout = config.slideLayout();
+        int workers = Math.max(1, Math.min(
+                Runtime.getRuntime().availableProcessors(),
+                FrameBufferPool.shared().capacity() / (layout.channels() + 1)));
+        System.out.println(String.format(Locale.US,
+                "[images] %d imagenes en %s (orden %s), decodificando con %d hilos",
+                images.size(), config.imagesDir(), config.imageOrder().name().toLowerCase(Locale.ROOT), workers));
+
+        long decodeStart = RunMetrics.start();
+        List<List<String>> decoded = decodeAll(images, layout, config.finderPrefilter(), workers);
+        RunMetrics.current().stop("stage.decode", decodeStart);
+
+        List<String> chunks = collectChunks(images, decoded, layout);
+        long payloadStart = RunMetrics.start();
+        PayloadZipService.PayloadBuildResult payloadBuild =
+                PayloadZipService.buildPayloadFromBase64Chunks(chunks, config.zipsOutputDir(), config.deltaBase());
+        RunMetrics.current().stop("stage.payload", payloadStart);
+        return payloadBuild;
+    }
+
+    private static List<List<String>> decodeAll(List<Path> images, SlideLayout layout, boolean finderPrefilter, int workers)
+            throws IOException {
+        List<List<String>> results = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            results.add(null);
+        }
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "qr-image-decode");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Void>> pending = new ArrayList<>(workers);
+            for (int worker = 0; worker < workers; worker++) {
+                pending.add(CompletableFuture.supplyAsync(RunMetrics.inheriting(() -> {
+                    RoiTracker roi = new RoiTracker();
+                    FinderPatternPrefilter prefilter = new FinderPatternPrefilter(finderPrefilter, layout);
+                    int index;
+                    while ((index = next.getAndIncrement()) < images.size()) {
+                        results.set(index, decodeImage(images.get(index), layout, roi, prefilter));
+                    }
+                    return null;
+                }), pool));
+            }
+            for (CompletableFuture<Void> worker : pending) {
+                worker.join();
+            }
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            }
+            throw ex;
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private static List<String> decodeImage(Path image, SlideLayout layout, RoiTracker roi, FinderPatternPrefilter prefilter) {
+        GrayFrame[] planes;
+        try {
+            if (layout.channels() == 1) {
+                GrayFrame frame = FrameBufferPool.shared().read(image);
+                planes = frame == null ? null : new GrayFrame[] {frame};
+            } else {
+                planes = FrameBufferPool.shared().readChannels(image);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (planes == null) {
+            System.out.println("[images] Imagen ilegible, se omite: " + image.getFileName());
+            return List.of();
+        }
+        try {
+            return QrFrameReader.decodeSlide(planes, image.getFileName().toString(), layout, roi, prefilter);
+        } finally {
+            GrayFrame.releaseAll(planes);
+        }
+    }
+
+    /**
+     * Una rafaga suele traer varias fotos del mismo slide: los chunks QRC1 se deduplican al armar
+     * el payload y los chunks sin marco se colapsan cuando repiten el slide anterior.
+     */
+    private static List<String> collectChunks(List<Path> images, List<List<String>> decoded, SlideLayout layout) {
+        List<String> chunks = new ArrayList<>();
+        List<String> previous = List.of();
+        int withoutQr = 0;
+        int repeated = 0;
+        for (int i = 0; i < images.size(); i++) {
+            List<String> texts = new ArrayList<>();
+            for (String text : decoded.get(i)) {
+                String normalized = text.trim();
+                if (!QrFrameReader.isWarmupPayload(normalized)) {
+                    texts.add(normalized);
+                }
+            }
+            String name = images.get(i).getFileName().toString();
+            if (texts.isEmpty()) {
+                if (decoded.get(i).isEmpty()) {
+                    withoutQr++;
+                    System.out.println("[images] Sin QR detectable en: " + name);
+                } else {
+                    System.out.println("[images] Omitiendo __WARMUP__ en " + name);
+                }
+                continue;
+            }
+            if (texts.equals(previous) && texts.stream().noneMatch(ChunkIntegrity::isFramed)) {
+                repeated++;
+                continue;
+            }
+            previous = texts;
+            for (String text : texts) {
+                chunks.add(text);
+                System.out.println(String.format(Locale.US,
+                        "[images] QR %03d leido en %s (len=%d)", chunks.size(), name, text.length()));
+            }
+            if (texts.size() < layout.codesPerSlide()) {
+                System.out.println(String.format(Locale.US,
+                        "[images] Mosaico incompleto en %s: %d/%d tiles", name, texts.size(), layout.codesPerSlide()));
+            }
+        }
+        System.out.println(String.format(Locale.US,
+                "[images] Imagenes=%d, sin QR=%d, repetidas=%d, QRs leidos=%d",
+                images.size(), withoutQr, repeated, chunks.size()));
+        return chunks;
+    }
+
+    static List<Path> listImages(Path directory, Order order) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalStateException("No existe la carpeta de imagenes: " + directory.toAbsolutePath());
+        }
+        List<Path> images = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                if (Files.isRegularFile(entry) && dot > 0
+                        && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                    images.add(entry);
+                }
+            }
+        }
+        Comparator<Path> byName = (left, right) ->
+                compareNatural(left.getFileName().toString(), right.getFileName().toString());
+        if (order == Order.NAME) {
+            images.sort(byName);
+            return images;
+        }
+        Map<Path, FileTime> times = new HashMap<>();
+        for (Path image : images) {
+            FileTime exif = order == Order.EXIF ? exifDateTime(image) : null;
+            times.put(image, exif != null ? exif : Files.getLastModifiedTime(image));
+        }
+        images.sort(Comparator.comparing((Path image) -> times.get(image)).thenComparing(byName));
+        return images;
+    }
+
+    /** Compara nombres tratando los numeros como numeros: IMG_9 va antes que IMG_10. */
+    static int compareNatural(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            char a = left.charAt(i);
+            char b = right.charAt(j);
+            if (Character.isDigit(a) && Character.isDigit(b)) {
+                int startI = i;
+                int startJ = j;
+                while (i < left.length() && Character.isDigit(left.charAt(i))) {
+                    i++;
+                }
+                while (j < right.length() && Character.isDigit(right.charAt(j))) {
+                    j++;
+                }
+                String digitsA = stripLeadingZeros(left.substring(startI, i));
+                String digitsB = stripLeadingZeros(right.substring(startJ, j));
+                int compared = digitsA.length() != digitsB.length()
+                        ? Integer.compare(digitsA.length(), digitsB.length())
+                        : digitsA.compareTo(digitsB);
+                if (compared != 0) {
+                    return compared;
+                }
+            } else {
+                int compared = Character.compare(Character.toLowerCase(a), Character.toLowerCase(b));
+                if (compared != 0) {
+                    return compared;
+                }
+                i++;
+                j++;
+            }
+        }
+        int remaining = Integer.compare(left.length() - i, right.length() - j);
+        return remaining != 0 ? remaining : left.compareTo(right);
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        return digits.substring(start);
+    }
+
+    /** Lee DateTimeOriginal (o DateTime) del bloque APP1 de un JPEG; null si no hay EXIF legible. */
+    private static FileTime exifDateTime(Path image) throws IOException {
+        byte[] head;
+        try (InputStream input = Files.newInputStream(image)) {
+            head = input.readNBytes(EXIF_SCAN_BYTES);
+        }
+        if (head.length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xFF) != 0xD8) {
+            return null;
+        }
+        int offset = 2;
+        while (offset + 4 <= head.length && (head[offset] & 0xFF) == 0xFF) {
+            int marker = head[offset + 1] & 0xFF;
+            int length = ((head[offset + 2] & 0xFF) << 8) | (head[offset + 3] & 0xFF);
+            if (marker == 0xE1 && offset + 10 <= head.length
+                    && "Exif".equals(new String(head, offset + 4, 4, StandardCharsets.US_ASCII))) {
+                return new Tiff(head, offset + 10, Math.min(head.length, offset + 2 + length)).dateTime();
+            }
+            if (marker == 0xDA) {
+                return null;
+            }
+            offset += 2 + length;
+        }
+        return null;
+    }
+
+    private static final class Tiff {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private boolean littleEndian;
+
+        private Tiff(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        private FileTime dateTime() {
+            if (start + 8 > end) {
+                return null;
+            }
+            if (data[start] == 'I' && data[start + 1] == 'I') {
+                littleEndian = true;
+            } else if (data[start] != 'M' || data[start + 1] != 'M') {
+                return null;
+            }
+            long ifd0 = u32(start + 4);
+            String original = null;
+            long exifIfd = findTag(ifd0, TAG_EXIF_IFD, false);
+            if (exifIfd > 0) {
+                original = asciiTag(exifIfd, TAG_DATE_TIME_ORIGINAL);
+            }
+            String value = original != null ? original : asciiTag(ifd0, TAG_DATE_TIME);
+            if (value == null) {
+                return null;
+            }
+            try {
+                LocalDateTime local = LocalDateTime.parse(value.trim(), EXIF_DATE);
+                return FileTime.from(local.atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+
+        private String asciiTag(long ifd, int tag) {
+            long entry = findTag(ifd, tag, true);
+            if (entry < 0) {
+                return null;
+            }
+            int position = (int) entry;
+            long count = u32(position + 4);
+            if (count <= 0 || count > 64) {
+                return null;
+            }
+            long valueOffset = count <= 4 ? position + 8 : start + u32(position + 8);
+            if (valueOffset < start || valueOffset + count > end) {
+                return null;
+            }
+            int length = (int) count;
+            while (length > 0 && data[(int) valueOffset + length - 1] == 0) {
+                length--;
+            }
+            return new String(data, (int) valueOffset, length, StandardCharsets.US_ASCII);
+        }
+
+        /** Busca un tag en un IFD; devuelve la posicion de la entrada o, con entry en false, su valor. */
+        private long findTag(long ifd, int tag, boolean entry) {
+            long position = start + ifd;
+            if (ifd <= 0 || position + 2 > end) {
+                return -1;
+            }
+            int count = u16((int) position);
+            for (int i = 0; i < count; i++) {
+                int at = (int) position + 2 + i * 12;
+                if (at + 12 > end) {
+                    return -1;
+                }
+                if (u16(at) == tag) {
+                    return entry ? at : u32(at + 8);
+                }
+            }
+            return -1;
+        }
+
+        private int u16(int at) {
+            int a = data[at] & 0xFF;
+            int b = data[at + 1] & 0xFF;
+            return littleEndian ? (b << 8) | a : (a << 8) | b;
+        }
+
+        private long u32(int at) {
+            if (at < 0 || at + 4 > end) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                int shift = littleEndian ? 8 * i : 8 * (3 - i);
+                value |= (long) (data[at + i] & 0xFF) << shift;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package app;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+final class JfrRecording implements AutoCloseable {
+    private static final String SETTINGS = "profile";
+
+    private final Recording recording;
+    private final Path destination;
+
+    private JfrRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    static JfrRecording start(Path destination) throws IOException {
+        if (destination == null) {
+            return new JfrRecording(null, null);
+        }
+        Path parent = destination.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration(SETTINGS));
+        } catch (ParseException ex) {
+            throw new IOException("No se pudo cargar la configuracion JFR '" + SETTINGS + "': " + ex.getMessage(), ex);
+        }
+        recording.setName("qr-read-app-2");
+        recording.setToDisk(true);
+        recording.setDumpOnExit(true);
+        recording.setDestination(destination);
+        recording.start();
+        System.out.println("[jfr] Grabando en " + destination.toAbsolutePath() + " (configuracion " + SETTINGS + ")");
+        return new JfrRecording(recording, destination);
+    }
+
+    @Override
+    public void close() {
+        if (recording == null) {
+            return;
+        }
+        recording.stop();
+        recording.close();
+        System.out.println("[jfr] Grabacion escrita en " + destination.toAbsolutePath());
+    }
+}
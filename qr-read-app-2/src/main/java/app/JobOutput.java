@@ -0,0 +1,61 @@
+package app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Redirige System.out y System.err del hilo del job a su run.log, para que las lineas de jobs
+ * concurrentes no se mezclen en la consola.
+ */
+final class JobOutput implements AutoCloseable {
+    private static final ThreadLocal<OutputStream> TARGET = new ThreadLocal<>();
+
+    private final OutputStream log;
+
+    private JobOutput(OutputStream log) {
+        this.log = log;
+    }
+
+    static JobOutput open(Path logFile) throws IOException {
+        OutputStream log = Files.newOutputStream(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        TARGET.set(log);
+        return new JobOutput(log);
+    }
+
+    static PrintStream routed(PrintStream fallback) {
+        OutputStream router = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                target().write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target().flush();
+            }
+
+            private OutputStream target() {
+                OutputStream target = TARGET.get();
+                return target == null ? fallback : target;
+            }
+        };
+        return new PrintStream(router, true, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        TARGET.remove();
+        log.close();
+    }
+}
@@ -0,0 +1,78 @@
+package app;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/** JSON minimo para reportes y respuestas: mapas, listas, numeros, booleanos y texto. */
+final class Json {
+    private Json() {
+    }
+
+    static String write(Object value) {
+        StringBuilder json = new StringBuilder();
+        append(json, value, "");
+        return json.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void append(StringBuilder json, Object value, String indent) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            if (map.isEmpty()) {
+                json.append("{}");
+                return;
+            }
+            String inner = indent + "  ";
+            json.append("{\n");
+            int index = 0;
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                json.append(inner);
+                appendString(json, entry.getKey());
+                json.append(": ");
+                append(json, entry.getValue(), inner);
+                json.append(++index < map.size() ? ",\n" : "\n");
+            }
+            json.append(indent).append('}');
+        } else if (value instanceof Collection) {
+            Collection<?> items = (Collection<?>) value;
+            if (items.isEmpty()) {
+                json.append("[]");
+                return;
+            }
+            String inner = indent + "  ";
+            json.append("[\n");
+            int index = 0;
+            for (Object item : items) {
+                json.append(inner);
+                append(json, item, inner);
+                json.append(++index < items.size() ? ",\n" : "\n");
+            }
+            json.append(indent).append(']');
+        } else if (value instanceof Double) {
+            double number = (Double) value;
+            json.append(Double.isFinite(number) ? String.format(Locale.US, "%.3f", number) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendString(json, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
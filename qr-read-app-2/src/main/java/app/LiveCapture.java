@@ -0,0 +1,273 @@
+package app;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+final class LiveCapture {
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int ATTEMPTS_PER_SLIDE = 5;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    private static final long PROCESS_EXIT_SECONDS = 5;
+    private static final LiveFrame END = new LiveFrame(null, 0, 0L);
+
+    private final AppConfig config;
+    private final BlockingQueue<LiveFrame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final List<String> chunks = new ArrayList<>();
+    private final ChunkIntegrity.Progress progress = new ChunkIntegrity.Progress();
+    private volatile IOException readFailure;
+    private volatile int receivedFrames;
+    private volatile int droppedFrames;
+    private int detectedChanges;
+    private int failedSlides;
+    private long maxLatencyNanos;
+
+    private LiveCapture(AppConfig config) {
+        this.config = config;
+    }
+
+    static PayloadZipService.PayloadBuildResult run(AppConfig config) throws IOException, InterruptedException {
+        return new LiveCapture(config).capture();
+    }
+
+    private PayloadZipService.PayloadBuildResult capture() throws IOException, InterruptedException {
+        System.out.println("[live] Leyendo " + config.liveInput() + (config.liveRealtime() ? " (-re)" : ""));
+        Process ffmpeg = FfmpegFrameExtractor.startGrayPipe(
+                config.liveInput(), config.liveFormat(), config.liveRealtime(), config.fps());
+        Thread reader = new Thread(() -> readFrames(ffmpeg.getInputStream()), "live-frame-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        boolean finished = false;
+        try {
+            finished = decodeFrames();
+            if (!finished) {
+                ffmpeg.waitFor(PROCESS_EXIT_SECONDS, TimeUnit.SECONDS);
+            }
+        } finally {
+            ffmpeg.destroy();
+            reader.interrupt();
+            reader.join(TimeUnit.SECONDS.toMillis(PROCESS_EXIT_SECONDS));
+            drainQueue();
+        }
+        printStats();
+        if (!finished && readFailure != null) {
+            throw readFailure;
+        }
+        if (!finished && chunks.isEmpty() && !ffmpeg.isAlive() && ffmpeg.exitValue() != 0) {
+            throw new IOException("ffmpeg devolvio codigo " + ffmpeg.exitValue() + " leyendo " + config.liveInput());
+        }
+        if (!finished && progress.total() > 0) {
+            System.out.println(String.format(Locale.US,
+                    "[live] La entrada termino con %d de %d chunks", progress.received(), progress.total()));
+        }
+        return PayloadZipService.buildPayloadFromBase64Chunks(chunks, config.zipsOutputDir(), config.deltaBase());
+    }
+
+    private boolean decodeFrames() throws InterruptedException {
+        SlideLayout layout = config.slideLayout();
+        ChangeThreshold threshold = config.newChangeThreshold();
+        FinderPatternPrefilter prefilter = new FinderPatternPrefilter(config.finderPrefilter(), layout);
+        RoiTracker roi = new RoiTracker();
+        FrameSignature previous = null;
+        int attemptsLeft = ATTEMPTS_PER_SLIDE;
+        List<String> best = List.of();
+
+        while (true) {
+            LiveFrame live = queue.take();
+            if (live == END) {
+                commitSlide(best, layout);
+                return false;
+            }
+            try {
+                FrameSignature signature = FrameChangeDetector.signatureOf(live.frame, config.analysisSize());
+                if (previous != null) {
+                    double diff = signature.distance(previous);
+                    if (threshold.isChange(diff)) {
+                        commitSlide(best, layout);
+                        detectedChanges++;
+                        FrameChangeDetector.commitChange(detectedChanges, "live#" + live.number, diff, threshold.current());
+                        attemptsLeft = ATTEMPTS_PER_SLIDE;
+                        best = List.of();
+                        System.out.println(String.format(Locale.US,
+                                "[%04d] Cambio detectado | diff=%.4f | thr=%.4f | frame=live#%d",
+                                detectedChanges, diff, threshold.current(), live.number));
+                    }
+                }
+                previous = signature;
+                if (attemptsLeft == 0) {
+                    continue;
+                }
+
+                List<String> texts = QrFrameReader.decodeLiveFrame(live.frame, "live#" + live.number, layout, roi, prefilter);
+                attemptsLeft--;
+                if (texts.size() > best.size()) {
+                    best = texts;
+                }
+                if (best.size() >= layout.codesPerSlide() || (attemptsLeft == 0 && !best.isEmpty())) {
+                    maxLatencyNanos = Math.max(maxLatencyNanos, System.nanoTime() - live.receivedNanos);
+                    commitSlide(best, layout);
+                    best = List.of();
+                    attemptsLeft = 0;
+                    if (progress.complete()) {
+                        System.out.println(String.format(Locale.US,
+                                "[live] Ultimo chunk recibido (%d/%d); se cierra la captura",
+                                progress.received(), progress.total()));
+                        return true;
+                    }
+                } else if (attemptsLeft == 0) {
+                    failedSlides++;
+                    System.out.println(String.format(Locale.US,
+                            "[live] Sin QR detectable tras %d frames del cambio %d",
+                            ATTEMPTS_PER_SLIDE, detectedChanges));
+                }
+            } finally {
+                live.frame.release();
+            }
+        }
+    }
+
+    private void commitSlide(List<String> texts, SlideLayout layout) {
+        if (texts.isEmpty()) {
+            return;
+        }
+        int added = 0;
+        for (String text : texts) {
+            String normalized = text.trim();
+            if (QrFrameReader.isWarmupPayload(normalized)) {
+                System.out.println("[live] Omitiendo __WARMUP__");
+                continue;
+            }
+            chunks.add(normalized);
+            progress.add(normalized);
+            added++;
+        }
+        if (added == 0) {
+            return;
+        }
+        if (progress.total() > 0) {
+            System.out.println(String.format(Locale.US,
+                    "[live] Chunks %d/%d (%d QRs en el slide)", progress.received(), progress.total(), texts.size()));
+        } else {
+            System.out.println(String.format(Locale.US,
+                    "[live] QRs leidos: %d (%d/%d en el slide)", chunks.size(), texts.size(), layout.codesPerSlide()));
+        }
+    }
+
+    private void readFrames(InputStream stream) {
+        try (InputStream input = new BufferedInputStream(stream, STREAM_BUFFER_SIZE)) {
+            int number = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                int[] size = readPgmHeader(input);
+                if (size == null) {
+                    break;
+                }
+                GrayFrame frame = FrameBufferPool.shared().read(input, size[0], size[1]);
+                number++;
+                receivedFrames = number;
+                offer(new LiveFrame(frame, number, System.nanoTime()));
+            }
+        } catch (IOException ex) {
+            if (!Thread.currentThread().isInterrupted()) {
+                readFailure = ex;
+            }
+        } finally {
+            try {
+                queue.put(END);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void offer(LiveFrame live) {
+        while (!queue.offer(live)) {
+            LiveFrame oldest = queue.poll();
+            if (oldest != null && oldest != END) {
+                oldest.frame.release();
+                droppedFrames++;
+            }
+        }
+    }
+
+    private void drainQueue() {
+        LiveFrame live;
+        while ((live = queue.poll()) != null) {
+            if (live != END) {
+                live.frame.release();
+            }
+        }
+    }
+
+    private static int[] readPgmHeader(InputStream input) throws IOException {
+        String magic = readToken(input);
+        if (magic == null) {
+            return null;
+        }
+        if (!"P5".equals(magic)) {
+            throw new IOException("Se esperaba un frame PGM (P5) de ffmpeg y llego: " + magic);
+        }
+        int width = Integer.parseInt(readToken(input));
+        int height = Integer.parseInt(readToken(input));
+        int maxValue = Integer.parseInt(readToken(input));
+        if (maxValue > 255) {
+            throw new IOException("PGM de 16 bits no soportado");
+        }
+        return new int[] {width, height};
+    }
+
+    private static String readToken(InputStream input) throws IOException {
+        StringBuilder token = new StringBuilder();
+        while (true) {
+            int value = input.read();
+            if (value < 0) {
+                if (token.length() == 0) {
+                    return null;
+                }
+                throw new EOFException("Encabezado PGM incompleto");
+            }
+            if (value == '#' && token.length() == 0) {
+                while (value >= 0 && value != '\n') {
+                    value = input.read();
+                }
+                continue;
+            }
+            if (Character.isWhitespace(value)) {
+                if (token.length() > 0) {
+                    return token.toString();
+                }
+                continue;
+            }
+            token.append((char) value);
+        }
+    }
+
+    private void printStats() {
+        System.out.println(String.format(Locale.US,
+                "[live] Frames recibidos=%d, descartados por cola llena=%d, cambios=%d, slides sin QR=%d, latencia maxima=%.0f ms",
+                receivedFrames,
+                droppedFrames,
+                detectedChanges,
+                failedSlides,
+                maxLatencyNanos / 1_000_000.0));
+    }
+
+    private static final class LiveFrame {
+        private final GrayFrame frame;
+        private final int number;
+        private final long receivedNanos;
+
+        private LiveFrame(GrayFrame frame, int number, long receivedNanos) {
+            this.frame = frame;
+            this.number = number;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package app;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Varias grabaciones del mismo slideshow (otra camara, otra pasada): cada video se extrae, detecta
+ * y decodifica en paralelo con su propio journal y su log, y los chunks se combinan por posicion
+ * con voto en {@link ChunkIntegrity#merge}. Basta con que cada slide se haya leido en alguna toma.
+ */
+final class MultiRecordingMerge {
+    private static final int MAX_PARALLEL_RECORDINGS = 3;
+
+    private MultiRecordingMerge() {
+    }
+
+    static PayloadZipService.PayloadBuildResult run(AppConfig config) throws Exception {
+        List<Path> videos = new ArrayList<>();
+        videos.add(config.videoPath());
+        videos.addAll(config.mergeVideos());
+        for (Path video : videos) {
+            if (!Files.exists(video)) {
+                throw new IllegalStateException("No existe el video: " + video.toAbsolutePath());
+            }
+        }
+        Files.createDirectories(config.zipsOutputDir());
+
+        List<Recording> recordings = new ArrayList<>(videos.size());
+        for (int i = 0; i < videos.size(); i++) {
+            Path video = videos.get(i);
+            String label = String.format(Locale.US, "rec%d-%s", i + 1, FileUtils.baseName(video.getFileName().toString()));
+            recordings.add(new Recording(label, video,
+                    config.forJob(video, config.framesOutputDir().resolve(label), config.zipsOutputDir())));
+        }
+        System.out.println(String.format(Locale.US,
+                "[merge] Decodificando %d grabaciones (%d en paralelo); logs en %s",
+                recordings.size(), Math.min(recordings.size(), MAX_PARALLEL_RECORDINGS),
+                config.zipsOutputDir().toAbsolutePath()));
+
+        FrameBufferPool.shared().reserveForJobs(Math.min(recordings.size(), MAX_PARALLEL_RECORDINGS));
+        PrintStream console = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(JobOutput.routed(console));
+        System.setErr(JobOutput.routed(originalErr));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(recordings.size(), MAX_PARALLEL_RECORDINGS), task -> {
+            Thread thread = new Thread(task, "qr-merge-recording");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (Recording recording : recordings) {
+                pending.add(CompletableFuture.supplyAsync(RunMetrics.inheriting(() -> {
+                    decode(recording, config.zipsOutputDir(), console);
+                    return null;
+                }), pool));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdownNow();
+            System.setOut(console);
+            System.setErr(originalErr);
+        }
+
+        List<String> labels = new ArrayList<>();
+        List<List<String>> decoded = new ArrayList<>();
+        for (Recording recording : recordings) {
+            if (recording.decode != null) {
+                labels.add(recording.label);
+                decoded.add(recording.decode.chunks());
+            }
+        }
+        if (decoded.isEmpty()) {
+            throw new IllegalStateException("Ninguna grabacion pudo decodificarse; revise los logs .log en "
+                    + config.zipsOutputDir().toAbsolutePath());
+        }
+
+        List<String> merged = ChunkIntegrity.merge(labels, decoded);
+        long payloadStart = RunMetrics.start();
+        PayloadZipService.PayloadBuildResult payloadBuild =
+                PayloadZipService.buildPayloadFromBase64Chunks(merged, config.zipsOutputDir(), config.deltaBase());
+        RunMetrics.current().stop("stage.payload", payloadStart);
+
+        System.out.println();
+        List<Object> recordingReport = new ArrayList<>();
+        for (Recording recording : recordings) {
+            System.out.println("Grabacion " + recording.label + ": " + recording.video.toAbsolutePath()
+                    + (recording.decode != null ? " (" + recording.decode.chunks().size() + " QRs)" : " (fallo: " + recording.error + ")"));
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("label", recording.label);
+            entry.put("video", recording.video.toAbsolutePath().toString());
+            if (recording.decode != null) {
+                entry.put("frames", recording.decode.detection().totalFrames());
+                entry.put("changes", recording.decode.detection().detectedChanges());
+                entry.put("decodedQrs", recording.decode.chunks().size());
+            } else {
+                entry.put("error", recording.error);
+            }
+            recordingReport.add(entry);
+        }
+        QrFrameChangeDetectorApp.printPayloadSummary(payloadBuild);
+        Map<String, Object> run = QrFrameChangeDetectorApp.runReport(
+                config, "merge", config.videoPath().toAbsolutePath().toString(), payloadBuild);
+        run.put("recordings", recordingReport);
+        run.put("mergedChunks", merged.size());
+        QrFrameChangeDetectorApp.writeMetricsReport(payloadBuild, run);
+        return payloadBuild;
+    }
+
+    /** Una grabacion que falla no corta las demas: sus chunks simplemente no votan. */
+    private static void decode(Recording recording, Path zipsDir, PrintStream console) {
+        long start = System.nanoTime();
+        try {
+            JobOutput output = JobOutput.open(zipsDir.resolve(recording.label + ".log"));
+            try {
+                recording.decode = QrFrameChangeDetectorApp.decodeVideo(recording.config);
+            } catch (Exception ex) {
+                recording.error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+                System.out.println("Error: " + recording.error);
+            } finally {
+                output.close();
+            }
+        } catch (IOException ex) {
+            recording.error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        console.println(recording.decode != null
+                ? String.format(Locale.US, "[merge] %s: %d QRs en %.1f s", recording.label, recording.decode.chunks().size(), seconds)
+                : String.format(Locale.US, "[merge] %s fallo en %.1f s: %s", recording.label, seconds, recording.error));
+    }
+
+    private static final class Recording {
+        private final String label;
+        private final Path video;
+        private final AppConfig config;
+        private volatile QrFrameChangeDetectorApp.VideoDecode decode;
+        private volatile String error;
+
+        private Recording(String label, Path video, AppConfig config) {
+            this.label = label;
+            this.video = video;
+            this.config = config;
+        }
+    }
+}
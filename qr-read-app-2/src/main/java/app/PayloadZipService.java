@@ -1,11 +1,15 @@
 package app;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -17,6 +21,10 @@ import java.util.zip.ZipInputStream;
 
 final class PayloadZipService {
     private static final String FILE_PAYLOAD_TAG = "QRFILE1";
+    private static final String DIGEST_FILE_PAYLOAD_TAG = "QRFILE2";
+    private static final int SHA256_HEX_LENGTH = 64;
+    private static final int DECODE_BLOCK_CHARS = 64 * 1024;
+    private static final int HEAD_CHARS = 16;
     private static final char FILE_PAYLOAD_SEPARATOR = '|';
     private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
     private static final ZoneId MEXICO_CITY_ZONE = ZoneId.of("America/Mexico_City");
@@ -28,25 +36,41 @@ final class PayloadZipService {
     }
 
     static PayloadBuildResult buildPayloadFromBase64Chunks(List<String> chunks, Path outputDir) throws IOException {
+        return buildPayloadFromBase64Chunks(chunks, outputDir, null);
+    }
+
+    /** deltaBase es el archivo (o carpeta) contra el que se aplica un payload QRDELTA1; puede ser null. */
+    static PayloadBuildResult buildPayloadFromBase64Chunks(List<String> chunks, Path outputDir, Path deltaBase)
+            throws IOException {
         if (chunks == null || chunks.isEmpty()) {
             throw new IllegalStateException("No se encontraron QRs utiles para reconstruir un archivo.");
         }
 
-        String combined = String.join("", chunks);
+        String combined = String.join("", ChunkIntegrity.assemble(chunks));
         DecodedPayload payload = decodePayload(combined);
         String outputName = resolveOutputFileName(payload);
 
+        Path base = payload.isDelta()
+                ? DeltaPayload.resolveBase(deltaBase, payload.baseSha256(), payload.originalFileName())
+                : null;
+
         Files.createDirectories(outputDir);
         Path payloadPath = resolveUniquePath(outputDir, outputName);
-        Files.write(payloadPath, payload.bytes(),
-                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        long payloadBytes = base != null
+                ? DeltaPayload.apply(payload.base64Data(), base, payloadPath, payload.expectedSha256())
+                : writeVerifiedPayload(payload, payloadPath);
+        if (payload.expectedSha256() != null) {
+            System.out.println("[payload] SHA-256 verificado: " + payload.expectedSha256());
+        }
         System.out.println("Archivo reconstruido en: " + payloadPath.toAbsolutePath());
 
         Path extractedDir = null;
         if (isZipPayload(payload, payloadPath)) {
             String extractDirName = stripExtension(payloadPath.getFileName().toString());
             extractedDir = outputDir.resolve(extractDirName);
+            long unzipStart = RunMetrics.start();
             unzip(payloadPath, extractedDir);
+            RunMetrics.current().stop("payload.unzip", unzipStart);
             System.out.println("ZIP descomprimido en: " + extractedDir.toAbsolutePath());
         }
 
@@ -54,13 +78,52 @@ final class PayloadZipService {
                 payloadPath,
                 extractedDir,
                 chunks.size(),
-                payload.bytes().length,
+                payloadBytes,
                 payload.mimeType(),
-                payload.originalFileName()
+                payload.originalFileName(),
+                payload.expectedSha256() != null
         );
     }
 
-    private static DecodedPayload decodePayload(String combined) {
+    static long writeVerifiedPayload(DecodedPayload payload, Path payloadPath) throws IOException {
+        MessageDigest digest = sha256();
+        String base64Data = payload.base64Data();
+        Base64.Decoder decoder = Base64.getDecoder();
+        long written = 0;
+        long decodeNanos = 0;
+        long writeNanos = 0;
+        try (OutputStream output = new DigestOutputStream(Files.newOutputStream(payloadPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), digest)) {
+            for (int start = 0; start < base64Data.length(); start += DECODE_BLOCK_CHARS) {
+                int end = Math.min(base64Data.length(), start + DECODE_BLOCK_CHARS);
+                long blockStart = System.nanoTime();
+                byte[] block = decodeBase64Payload(decoder, base64Data.substring(start, end));
+                long writeStart = System.nanoTime();
+                output.write(block);
+                writeNanos += System.nanoTime() - writeStart;
+                decodeNanos += writeStart - blockStart;
+                written += block.length;
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(payloadPath);
+            throw ex;
+        }
+        RunMetrics.current().record("payload.base64_decode", decodeNanos);
+        RunMetrics.current().record("payload.write", writeNanos);
+        RunMetrics.current().count("payload.bytes", written);
+
+        if (payload.expectedSha256() != null) {
+            String actual = toHex(digest.digest());
+            if (!actual.equalsIgnoreCase(payload.expectedSha256())) {
+                Files.deleteIfExists(payloadPath);
+                throw new IllegalStateException("SHA-256 del payload no coincide: esperado "
+                        + payload.expectedSha256() + ", obtenido " + actual);
+            }
+        }
+        return written;
+    }
+
+    static DecodedPayload decodePayload(String combined) {
         String compact = combined == null ? "" : combined.replaceAll("\\s+", "");
         if (compact.isEmpty()) {
             throw new IllegalStateException("El payload combinado esta vacio.");
@@ -68,43 +131,100 @@ final class PayloadZipService {
 
         String taggedPrefix = FILE_PAYLOAD_TAG + FILE_PAYLOAD_SEPARATOR;
         if (compact.startsWith(taggedPrefix)) {
-            return decodeTaggedPayload(compact, taggedPrefix.length());
+            return decodeTaggedPayload(compact, taggedPrefix.length(), false);
+        }
+        String digestTaggedPrefix = DIGEST_FILE_PAYLOAD_TAG + FILE_PAYLOAD_SEPARATOR;
+        if (compact.startsWith(digestTaggedPrefix)) {
+            return decodeTaggedPayload(compact, digestTaggedPrefix.length(), true);
+        }
+        String deltaPrefix = DeltaPayload.TAG + FILE_PAYLOAD_SEPARATOR;
+        if (compact.startsWith(deltaPrefix)) {
+            return decodeDeltaPayload(compact, deltaPrefix.length());
         }
 
-        byte[] bytes = decodeBase64Payload(compact);
-        String detectedMime = detectMimeTypeFromBytes(bytes);
-        return new DecodedPayload(bytes, detectedMime, null);
+        byte[] head = decodeHead(compact);
+        return new DecodedPayload(compact, head, detectMimeTypeFromBytes(head), null, null, null);
     }
 
-    private static DecodedPayload decodeTaggedPayload(String compact, int prefixLength) {
+    /** QRDELTA1|mime|nombre|sha256 nuevo|sha256 base|manifiesto: los datos no son el archivo, asi que no hay cabecera. */
+    private static DecodedPayload decodeDeltaPayload(String compact, int prefixLength) {
+        String[] fields = compact.substring(prefixLength).split("\\" + FILE_PAYLOAD_SEPARATOR, 5);
+        if (fields.length != 5 || fields[0].isBlank()) {
+            throw new IllegalStateException("Payload " + DeltaPayload.TAG + " invalido: faltan campos.");
+        }
+        if (fields[2].length() != SHA256_HEX_LENGTH || fields[3].length() != SHA256_HEX_LENGTH) {
+            throw new IllegalStateException("Payload " + DeltaPayload.TAG + " invalido: falta SHA-256.");
+        }
+        String mimeType = fields[0].trim().toLowerCase(Locale.ROOT);
+        return new DecodedPayload(fields[4], new byte[0], mimeType, decodeFileNameToken(fields[1]), fields[2], fields[3]);
+    }
+
+    private static DecodedPayload decodeTaggedPayload(String compact, int prefixLength, boolean withDigest) {
+        String tag = withDigest ? DIGEST_FILE_PAYLOAD_TAG : FILE_PAYLOAD_TAG;
         int mimeEnd = compact.indexOf(FILE_PAYLOAD_SEPARATOR, prefixLength);
         if (mimeEnd <= prefixLength) {
-            throw new IllegalStateException("Payload QRFILE1 invalido: falta mimeType.");
+            throw new IllegalStateException("Payload " + tag + " invalido: falta mimeType.");
         }
 
         int fileNameEnd = compact.indexOf(FILE_PAYLOAD_SEPARATOR, mimeEnd + 1);
         if (fileNameEnd <= mimeEnd + 1) {
-            throw new IllegalStateException("Payload QRFILE1 invalido: falta nombre de archivo.");
+            throw new IllegalStateException("Payload " + tag + " invalido: falta nombre de archivo.");
+        }
+
+        int dataStart = fileNameEnd + 1;
+        String expectedSha256 = null;
+        if (withDigest) {
+            int digestEnd = compact.indexOf(FILE_PAYLOAD_SEPARATOR, dataStart);
+            if (digestEnd != dataStart + SHA256_HEX_LENGTH) {
+                throw new IllegalStateException("Payload " + tag + " invalido: falta SHA-256.");
+            }
+            expectedSha256 = compact.substring(dataStart, digestEnd);
+            dataStart = digestEnd + 1;
         }
 
         String mimeType = compact.substring(prefixLength, mimeEnd).trim();
         String fileNameToken = compact.substring(mimeEnd + 1, fileNameEnd);
-        String base64Data = compact.substring(fileNameEnd + 1);
-        byte[] bytes = decodeBase64Payload(base64Data);
+        String base64Data = compact.substring(dataStart);
+        byte[] head = decodeHead(base64Data);
 
         String decodedFileName = decodeFileNameToken(fileNameToken);
-        String normalizedMimeType = normalizeMimeType(mimeType, bytes);
-        return new DecodedPayload(bytes, normalizedMimeType, decodedFileName);
+        String normalizedMimeType = normalizeMimeType(mimeType, head);
+        return new DecodedPayload(base64Data, head, normalizedMimeType, decodedFileName, expectedSha256, null);
+    }
+
+    private static byte[] decodeHead(String base64Data) {
+        int length = base64Data.length() <= HEAD_CHARS ? base64Data.length() : HEAD_CHARS;
+        try {
+            return Base64.getDecoder().decode(base64Data.substring(0, length));
+        } catch (IllegalArgumentException ex) {
+            return new byte[0];
+        }
     }
 
-    private static byte[] decodeBase64Payload(String compact) {
+    private static byte[] decodeBase64Payload(Base64.Decoder decoder, String block) {
         try {
-            return Base64.getDecoder().decode(compact);
+            return decoder.decode(block);
         } catch (IllegalArgumentException ex) {
             throw new IllegalStateException("El payload combinado no es Base64 valido.");
         }
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(String.format(Locale.US, "%02x", value & 0xFF));
+        }
+        return hex.toString();
+    }
+
     private static String decodeFileNameToken(String token) {
         if (token == null || token.isBlank()) {
             return null;
@@ -255,7 +375,15 @@ final class PayloadZipService {
         if (fileName.endsWith(".zip")) {
             return true;
         }
-        return isZipBytes(payload.bytes());
+        return isZipBytes(payload.isDelta() ? readHead(path) : payload.head());
+    }
+
+    private static byte[] readHead(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            return input.readNBytes(4);
+        } catch (IOException ex) {
+            return new byte[0];
+        }
     }
 
     private static boolean isZipBytes(byte[] bytes) {
@@ -298,7 +426,7 @@ final class PayloadZipService {
                 && (bytes[2] & 0xFF) == 0xFF;
     }
 
-    private static void unzip(Path zipPath, Path targetDir) throws IOException {
+    static void unzip(Path zipPath, Path targetDir) throws IOException {
         Files.createDirectories(targetDir);
         try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipPath))) {
             ZipEntry entry;
@@ -332,17 +460,19 @@ final class PayloadZipService {
         private final Path outputPath;
         private final Path extractedDir;
         private final int chunkCount;
-        private final int payloadBytes;
+        private final long payloadBytes;
         private final String mimeType;
         private final String originalFileName;
+        private final boolean digestVerified;
 
         private PayloadBuildResult(
                 Path outputPath,
                 Path extractedDir,
                 int chunkCount,
-                int payloadBytes,
+                long payloadBytes,
                 String mimeType,
-                String originalFileName
+                String originalFileName,
+                boolean digestVerified
         ) {
             this.outputPath = outputPath;
             this.extractedDir = extractedDir;
@@ -350,6 +480,7 @@ final class PayloadZipService {
             this.payloadBytes = payloadBytes;
             this.mimeType = mimeType;
             this.originalFileName = originalFileName;
+            this.digestVerified = digestVerified;
         }
 
         Path outputPath() {
@@ -364,7 +495,7 @@ final class PayloadZipService {
             return chunkCount;
         }
 
-        int payloadBytes() {
+        long payloadBytes() {
             return payloadBytes;
         }
 
@@ -375,21 +506,46 @@ final class PayloadZipService {
         String originalFileName() {
             return originalFileName;
         }
+
+        boolean digestVerified() {
+            return digestVerified;
+        }
     }
 
-    private static final class DecodedPayload {
-        private final byte[] bytes;
+    static final class DecodedPayload {
+        private final String base64Data;
+        private final byte[] head;
         private final String mimeType;
         private final String originalFileName;
+        private final String expectedSha256;
+        private final String baseSha256;
 
-        private DecodedPayload(byte[] bytes, String mimeType, String originalFileName) {
-            this.bytes = bytes;
+        private DecodedPayload(
+                String base64Data,
+                byte[] head,
+                String mimeType,
+                String originalFileName,
+                String expectedSha256,
+                String baseSha256
+        ) {
+            this.base64Data = base64Data;
+            this.head = head;
             this.mimeType = mimeType == null || mimeType.isBlank() ? DEFAULT_MIME_TYPE : mimeType;
             this.originalFileName = originalFileName;
+            this.expectedSha256 = expectedSha256;
+            this.baseSha256 = baseSha256;
         }
 
-        byte[] bytes() {
-            return bytes;
+        String base64Data() {
+            return base64Data;
+        }
+
+        byte[] head() {
+            return head;
+        }
+
+        String expectedSha256() {
+            return expectedSha256;
         }
 
         String mimeType() {
@@ -399,5 +555,13 @@ final class PayloadZipService {
         String originalFileName() {
             return originalFileName;
         }
+
+        String baseSha256() {
+            return baseSha256;
+        }
+
+        boolean isDelta() {
+            return baseSha256 != null;
+        }
     }
 }
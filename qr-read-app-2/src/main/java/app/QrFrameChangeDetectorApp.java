@@ -1,9 +1,13 @@
 package app;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public final class QrFrameChangeDetectorApp {
     private QrFrameChangeDetectorApp() {
@@ -25,54 +29,243 @@ public final class QrFrameChangeDetectorApp {
             return;
         }
 
-        if (!Files.exists(config.videoPath())) {
-            System.err.println("No existe el video: " + config.videoPath().toAbsolutePath());
+        JfrRecording recording;
+        try {
+            recording = JfrRecording.start(config.jfrFile());
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Error: no se pudo iniciar la grabacion JFR: " + ex.getMessage());
             System.exit(1);
             return;
         }
+        try (recording) {
+            if (config.watchDir() != null) {
+                WatchFolderDaemon.run(config);
+            } else if (config.serveMode()) {
+                DecodeServer.run(config);
+            } else {
+                run(config);
+            }
+        } catch (Exception ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static PayloadZipService.PayloadBuildResult run(AppConfig config) throws Exception {
+        if (config.imagesMode()) {
+            return runImages(config);
+        }
+        return config.liveMode() ? runLive(config) : runVideo(config);
+    }
+
+    private static PayloadZipService.PayloadBuildResult runVideo(AppConfig config) throws Exception {
+        if (!config.mergeVideos().isEmpty()) {
+            return MultiRecordingMerge.run(config);
+        }
+        Files.createDirectories(config.zipsOutputDir());
+        VideoDecode decode = decodeVideo(config);
+        long payloadStart = RunMetrics.start();
+        PayloadZipService.PayloadBuildResult payloadBuild = PayloadZipService.buildPayloadFromBase64Chunks(
+                decode.chunks,
+                config.zipsOutputDir(),
+                config.deltaBase()
+        );
+        RunMetrics.current().stop("stage.payload", payloadStart);
+
+        FrameChangeDetector.DetectionResult detection = decode.detection;
+        printSummary(config, detection, decode.sink, decode.chunks.size(), payloadBuild);
+        Map<String, Object> run = runReport(config, "video", config.videoPath().toAbsolutePath().toString(), payloadBuild);
+        run.put("frames", detection.totalFrames());
+        run.put("comparisons", detection.comparedFrames());
+        run.put("changes", detection.detectedChanges());
+        run.put("maxDiff", detection.maxDiff());
+        run.put("decodedQrs", decode.chunks.size());
+        writeMetricsReport(payloadBuild, run);
+        return payloadBuild;
+    }
+
+    /** Extraccion, deteccion y decodificacion de un video, sin armar el payload. */
+    static VideoDecode decodeVideo(AppConfig config) throws Exception {
+        if (!Files.exists(config.videoPath())) {
+            throw new IllegalStateException("No existe el video: " + config.videoPath().toAbsolutePath());
+        }
 
         Path tempFramesDir = null;
         try {
-            FrameChangeDetector.prepareFramesOutputDir(config.framesOutputDir());
-            Files.createDirectories(config.zipsOutputDir());
-
             tempFramesDir = Files.createTempDirectory("qr-read-app-2-source-frames-");
-            FfmpegFrameExtractor.extractFrames(config.videoPath(), tempFramesDir, config.fps());
 
-            List<Path> extractedFrames = FileUtils.listPngFrames(tempFramesDir, "frame_");
-            if (extractedFrames.isEmpty()) {
-                throw new IllegalStateException("ffmpeg no extrajo frames del video.");
+            FrameChangeDetector.DetectionResult detection;
+            List<String> decodedChunks;
+            FrameSink sink = config.newFrameSink();
+            try (ChunkJournal journal = config.openJournal(); sink) {
+                boolean resumed = journal.frameCount() > 0;
+                List<Path> extractedFrames;
+                if (resumed) {
+                    extractedFrames = journaledFrames(tempFramesDir, journal.frameCount());
+                    System.out.println(String.format(Locale.US,
+                            "[journal] Reanudando %s: %d frames, %d firmas y %d frames decodificados; se omite la extraccion",
+                            journal.file().getFileName(),
+                            journal.frameCount(),
+                            journal.resumedSignatures(),
+                            journal.resumedDecodes()));
+                } else {
+                    long extractStart = RunMetrics.start();
+                    extractSourceFrames(config, tempFramesDir);
+                    RunMetrics.current().stop("stage.extract", extractStart);
+                    extractedFrames = FileUtils.listPngFrames(tempFramesDir, "frame_");
+                    if (extractedFrames.isEmpty()) {
+                        throw new IllegalStateException("ffmpeg no extrajo frames del video.");
+                    }
+                }
+
+                long detectStart = RunMetrics.start();
+                detection = FrameChangeDetector.detectChanges(
+                        extractedFrames,
+                        config.newChangeThreshold(),
+                        config.analysisSize(),
+                        config.frameSelection(),
+                        sink,
+                        journal
+                );
+                RunMetrics.current().stop("stage.detect", detectStart);
+                journal.recordFrameCount(extractedFrames.size());
+
+                if (detection.detectedFrames().isEmpty()) {
+                    throw new IllegalStateException("No se detectaron cambios de frame con el threshold actual.");
+                }
+
+                long decodeStart = RunMetrics.start();
+                decodedChunks = decodeDetectedFrames(
+                        config, detection, extractedFrames, tempFramesDir, sink, journal, resumed);
+                RunMetrics.current().stop("stage.decode", decodeStart);
             }
+            return new VideoDecode(detection, decodedChunks, sink);
+        } finally {
+            FileUtils.deleteRecursively(tempFramesDir);
+        }
+    }
+
+    private static PayloadZipService.PayloadBuildResult runLive(AppConfig config) throws Exception {
+        Files.createDirectories(config.zipsOutputDir());
+        PayloadZipService.PayloadBuildResult payloadBuild = LiveCapture.run(config);
+        System.out.println();
+        System.out.println("Entrada en vivo: " + config.liveInput());
+        printPayloadSummary(payloadBuild);
+        writeMetricsReport(payloadBuild, runReport(config, "live", config.liveInput(), payloadBuild));
+        return payloadBuild;
+    }
+
+    private static PayloadZipService.PayloadBuildResult runImages(AppConfig config) throws Exception {
+        Files.createDirectories(config.zipsOutputDir());
+        PayloadZipService.PayloadBuildResult payloadBuild = ImageSequenceInput.run(config);
+        System.out.println();
+        System.out.println("Carpeta de imagenes: " + config.imagesDir().toAbsolutePath());
+        printPayloadSummary(payloadBuild);
+        writeMetricsReport(payloadBuild,
+                runReport(config, "images", config.imagesDir().toAbsolutePath().toString(), payloadBuild));
+        return payloadBuild;
+    }
 
-            FrameChangeDetector.DetectionResult detection = FrameChangeDetector.detectChanges(
+    private static List<String> decodeDetectedFrames(
+            AppConfig config,
+            FrameChangeDetector.DetectionResult detection,
+            List<Path> extractedFrames,
+            Path tempFramesDir,
+            FrameSink sink,
+            ChunkJournal journal,
+            boolean resumed
+    ) throws IOException {
+        int[] neighborOffsets = config.cadenceSampling()
+                ? QrFrameReader.forwardNeighborOffsets(config.samplesPerSlide() - 1)
+                : QrFrameReader.defaultNeighborOffsets();
+        if (!config.lowResolutionProfile() && !resumed) {
+            return QrFrameReader.decodeFrames(
+                    detection.detectedFrames(),
                     extractedFrames,
-                    config.framesOutputDir(),
-                    config.changeThreshold(),
-                    config.analysisSize()
+                    config.slideLayout(),
+                    neighborOffsets,
+                    config.finderPrefilter(),
+                    FrameResolver.identity(),
+                    sink,
+                    journal
             );
+        }
 
-            if (detection.detectedFrames().isEmpty()) {
-                throw new IllegalStateException("No se detectaron cambios de frame con el threshold actual.");
+        try (FullResolutionFetcher fetcher = new FullResolutionFetcher(
+                config.videoPath(), tempFramesDir.resolve("full"), config.fps())) {
+            List<Path> pending = new ArrayList<>();
+            for (Path frame : detection.detectedFrames()) {
+                if (journal.decoded(frame, config.slideLayout()) == null) {
+                    pending.add(frame);
+                }
             }
-
-            List<String> decodedChunks = QrFrameReader.decodeFrames(detection.detectedFrames(), extractedFrames);
-            PayloadZipService.PayloadBuildResult payloadBuild = PayloadZipService.buildPayloadFromBase64Chunks(
-                    decodedChunks,
-                    config.zipsOutputDir()
+            fetcher.prefetch(pending);
+            List<String> decodedChunks = QrFrameReader.decodeFrames(
+                    detection.detectedFrames(),
+                    extractedFrames,
+                    config.slideLayout(),
+                    neighborOffsets,
+                    config.finderPrefilter(),
+                    fetcher,
+                    sink,
+                    journal
             );
+            System.out.println(String.format(Locale.US,
+                    "[perfil] Frames a resolucion completa por seek: %d de %d extraidos",
+                    fetcher.seeks(), extractedFrames.size()));
+            return decodedChunks;
+        }
+    }
 
-            printSummary(config, detection, decodedChunks.size(), payloadBuild);
-        } catch (Exception ex) {
-            System.err.println("Error: " + ex.getMessage());
-            System.exit(1);
-        } finally {
-            FileUtils.deleteRecursively(tempFramesDir);
+    private static List<Path> journaledFrames(Path tempFramesDir, int frameCount) {
+        List<Path> frames = new ArrayList<>(frameCount);
+        for (int number = 1; number <= frameCount; number++) {
+            frames.add(tempFramesDir.resolve(String.format(Locale.US, "frame_%08d.png", number)));
+        }
+        return frames;
+    }
+
+    private static void extractSourceFrames(AppConfig config, Path tempFramesDir)
+            throws IOException, InterruptedException {
+        String filter = config.lowResolutionProfile()
+                ? FfmpegFrameExtractor.grayPreviewFilter(config.fps(), config.lowResolutionHeight())
+                : "fps=" + config.fps();
+        if (!config.cadenceSampling() && config.extractionSegments() > 1) {
+            int segments = FfmpegFrameExtractor.extractFramesSegmented(
+                    config.videoPath(), tempFramesDir, config.fps(), filter, config.extractionSegments());
+            System.out.println(String.format(Locale.US,
+                    "[ffmpeg] Extraccion en %d tramos paralelos", segments));
+            return;
+        }
+        if (!config.cadenceSampling()) {
+            FfmpegFrameExtractor.extractFrames(config.videoPath(), tempFramesDir, filter);
+            return;
+        }
+
+        CadenceSampler.SamplingResult sampling = CadenceSampler.extractFrames(
+                config.videoPath(),
+                tempFramesDir,
+                config.fps(),
+                config.newChangeThreshold(),
+                config.analysisSize(),
+                config.samplesPerSlide(),
+                config.slidePeriodMs() / 1000.0
+        );
+        if (sampling.locked()) {
+            System.out.println(String.format(Locale.US,
+                    "[cadencia] Periodo final=%.4fs | frames densos=%d | muestras=%d",
+                    sampling.periodSeconds(), sampling.denseFrames(), sampling.sampledFrames()));
+        } else {
+            System.out.println(String.format(Locale.US,
+                    "[cadencia] No se pudo fijar la cadencia; se extrajeron %d frames a %d fps",
+                    sampling.denseFrames(), config.fps()));
         }
     }
 
     private static void printSummary(
             AppConfig config,
             FrameChangeDetector.DetectionResult detection,
+            FrameSink sink,
             int decodedQrCount,
             PayloadZipService.PayloadBuildResult payloadBuild
     ) {
@@ -82,15 +275,107 @@ public final class QrFrameChangeDetectorApp {
         System.out.println("Comparaciones: " + detection.comparedFrames());
         System.out.println("Cambios detectados: " + detection.detectedChanges());
         System.out.println(String.format(Locale.US, "Diff maximo observado: %.4f", detection.maxDiff()));
-        System.out.println("Frames guardados en: " + config.framesOutputDir().toAbsolutePath());
+        if (detection.adaptiveThreshold()) {
+            System.out.println(String.format(Locale.US, "Threshold adaptativo: %.4f - %.4f",
+                    detection.minThreshold(), detection.maxThreshold()));
+        }
+        printFrameSinkSummary(config, sink);
         System.out.println("QRs decodificados (sin warmup): " + decodedQrCount);
+        FrameBufferPool pool = FrameBufferPool.shared();
+        System.out.println(String.format(Locale.US,
+                "Buffers de frame: %d asignados, %d reutilizados, pico en uso %d/%d",
+                pool.allocated(), pool.reused(), pool.peakLeased(), pool.capacity()));
+        printPayloadSummary(payloadBuild);
+    }
+
+    static void printPayloadSummary(PayloadZipService.PayloadBuildResult payloadBuild) {
         System.out.println("MIME detectado: " + payloadBuild.mimeType());
         if (payloadBuild.originalFileName() != null && !payloadBuild.originalFileName().isBlank()) {
             System.out.println("Nombre original: " + payloadBuild.originalFileName());
         }
         System.out.println("Archivo reconstruido: " + payloadBuild.outputPath().toAbsolutePath());
+        System.out.println("SHA-256 del payload: " + (payloadBuild.digestVerified() ? "verificado" : "no incluido"));
         if (payloadBuild.extractedDir() != null) {
             System.out.println("ZIP descomprimido en: " + payloadBuild.extractedDir().toAbsolutePath());
         }
     }
+
+    static Map<String, Object> runReport(
+            AppConfig config,
+            String mode,
+            String input,
+            PayloadZipService.PayloadBuildResult payloadBuild
+    ) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("fps", config.fps());
+        settings.put("threshold", config.changeThreshold());
+        settings.put("adaptiveThreshold", config.adaptiveThreshold());
+        settings.put("analysisSize", config.analysisSize());
+        settings.put("tiles", config.slideLayout().toString());
+        settings.put("selection", config.frameSelection().toString());
+        settings.put("sampling", config.cadenceSampling() ? "cadence" : "dense");
+        settings.put("profile", config.lowResolutionProfile() ? "lowres@" + config.lowResolutionHeight() : "full");
+        settings.put("segments", config.extractionSegments());
+        settings.put("finderPrefilter", config.finderPrefilter());
+        if (config.imagesMode()) {
+            settings.put("imageOrder", config.imageOrder().name().toLowerCase(Locale.ROOT));
+        }
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("mode", mode);
+        run.put("input", input);
+        run.put("config", settings);
+        run.put("output", payloadBuild.outputPath().toAbsolutePath().toString());
+        run.put("payloadBytes", payloadBuild.payloadBytes());
+        run.put("chunks", payloadBuild.chunkCount());
+        run.put("sha256Verified", payloadBuild.digestVerified());
+        return run;
+    }
+
+    static void writeMetricsReport(PayloadZipService.PayloadBuildResult payloadBuild, Map<String, Object> run) {
+        try {
+            Path report = RunMetrics.current().writeReport(payloadBuild.outputPath(), run);
+            System.out.println("Reporte de metricas: " + report.toAbsolutePath());
+        } catch (IOException ex) {
+            System.out.println("No se pudo escribir el reporte de metricas: " + ex.getMessage());
+        }
+    }
+
+    private static void printFrameSinkSummary(AppConfig config, FrameSink sink) {
+        if (!(sink instanceof AsyncFrameSink)) {
+            System.out.println("Frames guardados: desactivado");
+            return;
+        }
+        AsyncFrameSink writer = (AsyncFrameSink) sink;
+        String label = config.frameSinkMode() == FrameSink.Mode.FAILED
+                ? "Frames fallidos guardados en: "
+                : "Frames guardados en: ";
+        System.out.println(label + config.framesOutputDir().toAbsolutePath());
+        System.out.println(String.format(Locale.US,
+                "Frames escritos: %d (%d con hard link), descartados por cola llena: %d",
+                writer.written(), writer.linked(), writer.dropped()));
+        if (writer.missing() > 0) {
+            System.out.println("Frames sin archivo local (reanudados del journal): " + writer.missing());
+        }
+    }
+
+    static final class VideoDecode {
+        private final FrameChangeDetector.DetectionResult detection;
+        private final List<String> chunks;
+        private final FrameSink sink;
+
+        private VideoDecode(FrameChangeDetector.DetectionResult detection, List<String> chunks, FrameSink sink) {
+            this.detection = detection;
+            this.chunks = chunks;
+            this.sink = sink;
+        }
+
+        FrameChangeDetector.DetectionResult detection() {
+            return detection;
+        }
+
+        List<String> chunks() {
+            return chunks;
+        }
+    }
 }
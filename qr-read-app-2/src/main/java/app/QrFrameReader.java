@@ -1,35 +1,60 @@
 package app;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
 import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.Result;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.DetectorResult;
 import com.google.zxing.common.GlobalHistogramBinarizer;
 import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.qrcode.detector.MultiDetector;
+import com.google.zxing.qrcode.decoder.Decoder;
 
-import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 final class QrFrameReader {
     private static final String WARMUP_PAYLOAD = "__WARMUP__";
-    private static final int[] NEIGHBOR_OFFSETS = {1, -1, 2, -2, 3, -3, 4, -4};
+    private static final int[] DEFAULT_NEIGHBOR_OFFSETS = {1, -1, 2, -2, 3, -3, 4, -4};
     private static final Pattern FRAME_NUMBER_PATTERN = Pattern.compile("frame_(\\d+)\\.png$", Pattern.CASE_INSENSITIVE);
+    private static final double TILE_CELL_MARGIN = 0.08;
+    private static final double TILE_FINDER_SPAN_RATIO = 0.85;
+    private static final double TILE_HALF_EXTENT_RATIO = 0.6;
+    private static final double[] CANDIDATE_CROP_RATIOS = {0.95, 0.90, 0.85, 0.80, 0.70};
+    private static final double[] VARIANT_SCALES = {1.0, 1.5, 2.0};
+    private static final ExecutorService TILE_DECODE_POOL = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()),
+            daemonThreadFactory("qr-tile-decode"));
+    private static final ExecutorService CHANNEL_DECODE_POOL = Executors.newFixedThreadPool(
+            3,
+            daemonThreadFactory("qr-channel-decode"));
 
     private QrFrameReader() {
     }
@@ -39,31 +64,81 @@ final class QrFrameReader {
     }
 
     static List<String> decodeFrames(List<Path> frames, List<Path> sourceFrames) throws IOException {
+        return decodeFrames(
+                frames,
+                sourceFrames,
+                SlideLayout.single(),
+                DEFAULT_NEIGHBOR_OFFSETS,
+                true,
+                FrameResolver.identity(),
+                FrameSink.off(),
+                ChunkJournal.disabled());
+    }
+
+    static List<String> decodeFrames(
+            List<Path> frames,
+            List<Path> sourceFrames,
+            SlideLayout layout,
+            int[] neighborOffsets,
+            boolean finderPrefilter,
+            FrameResolver resolver,
+            FrameSink sink,
+            ChunkJournal journal
+    ) throws IOException {
+        FinderPatternPrefilter prefilter = new FinderPatternPrefilter(finderPrefilter, layout);
+        if (!layout.isSingleCode()) {
+            return decodeMultiCodeFrames(
+                    frames, sourceFrames, layout, neighborOffsets, prefilter, resolver, sink, journal);
+        }
+
         Map<Integer, Path> sourceFramesByNumber = indexFramesByNumber(sourceFrames);
+        RoiTracker roi = new RoiTracker();
         List<String> decodedChunks = new ArrayList<>();
+        int fromJournal = 0;
         for (Path framePath : frames) {
-            BufferedImage image = ImageIO.read(framePath.toFile());
-            if (image == null) {
-                System.out.println("[decode] Frame invalido, se omite: " + framePath.getFileName());
-                continue;
-            }
-
-            String text = decodeQrRobust(image);
+            String text;
             Path decodedFrom = framePath;
-            if (text == null) {
-                FallbackDecode fallback = decodeFromNeighborFrames(framePath, sourceFramesByNumber);
-                if (fallback != null) {
-                    text = fallback.decodedText;
-                    decodedFrom = fallback.sourceFrame;
-                    System.out.println(String.format(Locale.US,
-                            "[decode] Recuperado con frame vecino (%+d): %s -> %s",
-                            fallback.offset,
-                            framePath.getFileName(),
-                            decodedFrom.getFileName()));
+            List<String> journaled = journal.decoded(framePath, layout);
+            if (journaled != null) {
+                text = journaled.get(0);
+                fromJournal++;
+            } else {
+                GrayFrame frame = readFrame(framePath, resolver);
+                if (frame == null) {
+                    System.out.println("[decode] Frame invalido, se omite: " + framePath.getFileName());
+                    continue;
+                }
+
+                DecodedQr decoded;
+                try {
+                    decoded = prefilter.mayContainQr(frame) ? decodeWithRoi(frame, roi) : null;
+                } finally {
+                    frame.release();
+                }
+                text = decoded == null || isCorrupt(decoded.text, framePath.getFileName().toString()) ? null : decoded.text;
+                if (text == null) {
+                    long fallbackStart = RunMetrics.start();
+                    FallbackDecode fallback = decodeFromNeighborFrames(
+                            framePath, sourceFramesByNumber, neighborOffsets, roi, prefilter, resolver);
+                    RunMetrics.current().stop("decode.neighbor_fallback", fallbackStart);
+                    if (fallback != null) {
+                        RunMetrics.current().count("decode.neighbor_fallback.recovered");
+                        text = fallback.decodedText;
+                        decodedFrom = fallback.sourceFrame;
+                        System.out.println(String.format(Locale.US,
+                                "[decode] Recuperado con frame vecino (%+d): %s -> %s",
+                                fallback.offset,
+                                framePath.getFileName(),
+                                decodedFrom.getFileName()));
+                    }
+                }
+                if (text != null) {
+                    journal.recordDecoded(framePath, layout, List.of(text));
                 }
             }
             if (text == null) {
                 System.out.println("[decode] Sin QR detectable en: " + framePath.getFileName());
+                sink.decodeFailed(framePath);
                 continue;
             }
 
@@ -82,9 +157,572 @@ final class QrFrameReader {
                     decodedFrom.getFileName(),
                     normalized.length()));
         }
+        printRoiStats(roi);
+        printPrefilterStats(prefilter);
+        printJournalStats(fromJournal, frames.size());
+        return decodedChunks;
+    }
+
+    private static List<String> decodeMultiCodeFrames(
+            List<Path> frames,
+            List<Path> sourceFrames,
+            SlideLayout layout,
+            int[] neighborOffsets,
+            FinderPatternPrefilter prefilter,
+            FrameResolver resolver,
+            FrameSink sink,
+            ChunkJournal journal
+    ) throws IOException {
+        Map<Integer, Path> sourceFramesByNumber = indexFramesByNumber(sourceFrames);
+        int tileCount = layout.codesPerSlide();
+        RoiTracker roi = new RoiTracker();
+        List<String> decodedChunks = new ArrayList<>();
+        int fromJournal = 0;
+        for (Path framePath : frames) {
+            List<String> tiles = journal.decoded(framePath, layout);
+            Path decodedFrom = framePath;
+            if (tiles != null) {
+                fromJournal++;
+            } else {
+                GrayFrame[] planes = readPlanes(framePath, layout, resolver);
+                if (planes == null) {
+                    System.out.println("[decode] Frame invalido, se omite: " + framePath.getFileName());
+                    continue;
+                }
+
+                try {
+                    tiles = prefilter.mayContainQr(planes[0])
+                            ? intactTexts(decodeTilesWithRoi(planes, layout, roi), framePath.getFileName().toString())
+                            : List.of();
+                } finally {
+                    GrayFrame.releaseAll(planes);
+                }
+                if (tiles.size() < tileCount) {
+                    long fallbackStart = RunMetrics.start();
+                    FallbackTiles fallback = decodeTilesFromNeighborFrames(
+                            framePath, tiles, sourceFramesByNumber, layout, neighborOffsets, roi, prefilter, resolver);
+                    RunMetrics.current().stop("decode.neighbor_fallback", fallbackStart);
+                    if (fallback != null) {
+                        RunMetrics.current().count("decode.neighbor_fallback.recovered");
+                        System.out.println(String.format(Locale.US,
+                                "[decode] Mosaico completado con frame vecino (%+d): %s -> %s (%d -> %d tiles)",
+                                fallback.offset,
+                                framePath.getFileName(),
+                                fallback.sourceFrame.getFileName(),
+                                tiles.size(),
+                                fallback.tiles.size()));
+                        tiles = fallback.tiles;
+                        decodedFrom = fallback.sourceFrame;
+                    }
+                }
+                if (tiles.size() >= tileCount) {
+                    journal.recordDecoded(framePath, layout, tiles);
+                }
+            }
+            if (tiles.isEmpty()) {
+                System.out.println("[decode] Sin QR detectable en: " + framePath.getFileName());
+                sink.decodeFailed(framePath);
+                continue;
+            }
+
+            int tileIndex = 0;
+            for (String text : tiles) {
+                tileIndex++;
+                String normalized = text.trim();
+                if (isWarmupPayload(normalized)) {
+                    System.out.println(String.format(Locale.US,
+                            "[decode] Omitiendo __WARMUP__ en %s",
+                            framePath.getFileName()));
+                    continue;
+                }
+                decodedChunks.add(normalized);
+                System.out.println(String.format(Locale.US,
+                        "[decode] QR %03d leido en %s (tile %d/%d, len=%d)",
+                        decodedChunks.size(),
+                        decodedFrom.getFileName(),
+                        tileIndex,
+                        tileCount,
+                        normalized.length()));
+            }
+            if (tiles.size() < tileCount && !tiles.stream().allMatch(QrFrameReader::isWarmupPayload)) {
+                System.out.println(String.format(Locale.US,
+                        "[decode] Mosaico incompleto en %s: %d/%d tiles (esperado solo en el ultimo slide)",
+                        decodedFrom.getFileName(),
+                        tiles.size(),
+                        tileCount));
+            }
+        }
+        printRoiStats(roi);
+        printPrefilterStats(prefilter);
+        printJournalStats(fromJournal, frames.size());
         return decodedChunks;
     }
 
+    private static GrayFrame readFrame(Path framePath, FrameResolver resolver) throws IOException {
+        Path resolved = resolveFrame(framePath, resolver);
+        return resolved == null ? null : FrameBufferPool.shared().read(resolved);
+    }
+
+    private static GrayFrame[] readPlanes(Path framePath, SlideLayout layout, FrameResolver resolver)
+            throws IOException {
+        if (layout.channels() == 1) {
+            GrayFrame frame = readFrame(framePath, resolver);
+            return frame == null ? null : new GrayFrame[] {frame};
+        }
+        Path resolved = resolveFrame(framePath, resolver);
+        return resolved == null ? null : FrameBufferPool.shared().readChannels(resolved);
+    }
+
+    private static Path resolveFrame(Path framePath, FrameResolver resolver) throws IOException {
+        try {
+            return resolver.resolve(framePath);
+        } catch (InterruptedIOException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            System.out.println(String.format(Locale.US,
+                    "[decode] No se pudo obtener %s: %s",
+                    framePath.getFileName(),
+                    ex.getMessage()));
+            return null;
+        }
+    }
+
+    private static DecodedQr decodeWithRoi(GrayFrame frame, RoiTracker roi) {
+        int width = frame.width();
+        int height = frame.height();
+        Rectangle region = roi.searchRegion(width, height);
+        if (region != null) {
+            long start = RunMetrics.start();
+            GrayFrame crop = frame.crop(region.x, region.y, region.width, region.height);
+            DecodedQr decoded = decodeQr(new DecodeCandidate(
+                    crop, region.x, region.y, "roi", region.width / (double) width));
+            RunMetrics.current().stop("decode.tier.roi", start);
+            if (decoded != null) {
+                RunMetrics.current().count("decode.tier.roi.hits");
+                roi.recordHit(decoded.bounds, width, height);
+                return decoded;
+            }
+            roi.recordMiss();
+        }
+
+        long start = RunMetrics.start();
+        DecodedQr decoded = decodeQrRobust(frame);
+        RunMetrics.current().stop("decode.tier.full", start);
+        if (decoded != null) {
+            RunMetrics.current().count("decode.tier.full.hits");
+            roi.record(decoded.bounds, width, height);
+        }
+        return decoded;
+    }
+
+    private static List<TileDecode> decodeTilesWithRoi(GrayFrame[] planes, SlideLayout layout, RoiTracker roi) {
+        int width = planes[0].width();
+        int height = planes[0].height();
+        Rectangle region = roi.searchRegion(width, height);
+        if (region != null) {
+            GrayFrame[] crops = new GrayFrame[planes.length];
+            long start = RunMetrics.start();
+            for (int i = 0; i < planes.length; i++) {
+                crops[i] = planes[i].crop(region.x, region.y, region.width, region.height);
+            }
+            List<TileDecode> tiles = decodeTiles(crops, layout);
+            RunMetrics.current().stop("decode.tier.tiles_roi", start);
+            if (tiles.size() >= layout.codesPerSlide()) {
+                RunMetrics.current().count("decode.tier.tiles_roi.hits");
+                roi.recordHit(tileBounds(tiles, region.x, region.y), width, height);
+                return tiles;
+            }
+            roi.recordMiss();
+        }
+
+        long start = RunMetrics.start();
+        List<TileDecode> tiles = decodeTiles(planes, layout);
+        RunMetrics.current().stop("decode.tier.tiles", start);
+        if (tiles.size() >= layout.codesPerSlide()) {
+            RunMetrics.current().count("decode.tier.tiles.hits");
+            roi.record(tileBounds(tiles, 0, 0), width, height);
+        }
+        return tiles;
+    }
+
+    private static Rectangle tileBounds(List<TileDecode> tiles, int offsetX, int offsetY) {
+        Rectangle bounds = null;
+        for (TileDecode tile : tiles) {
+            double halfExtent = tile.span * TILE_HALF_EXTENT_RATIO;
+            Rectangle box = new Rectangle(
+                    (int) Math.floor(offsetX + tile.centerX - halfExtent),
+                    (int) Math.floor(offsetY + tile.centerY - halfExtent),
+                    (int) Math.ceil(halfExtent * 2),
+                    (int) Math.ceil(halfExtent * 2));
+            bounds = bounds == null ? box : bounds.union(box);
+        }
+        return bounds;
+    }
+
+    static List<String> decodeLiveFrame(
+            GrayFrame frame,
+            String label,
+            SlideLayout layout,
+            RoiTracker roi,
+            FinderPatternPrefilter prefilter
+    ) {
+        return decodeSlide(new GrayFrame[] {frame}, label, layout, roi, prefilter);
+    }
+
+    /** Decodifica un slide ya en memoria, sin frames vecinos ni journal; planes trae un plano por canal. */
+    static List<String> decodeSlide(
+            GrayFrame[] planes,
+            String label,
+            SlideLayout layout,
+            RoiTracker roi,
+            FinderPatternPrefilter prefilter
+    ) {
+        if (!prefilter.mayContainQr(planes[0])) {
+            return List.of();
+        }
+        if (!layout.isSingleCode()) {
+            return intactTexts(decodeTilesWithRoi(planes, layout, roi), label);
+        }
+        DecodedQr decoded = decodeWithRoi(planes[0], roi);
+        return decoded == null || isCorrupt(decoded.text, label) ? List.of() : List.of(decoded.text);
+    }
+
+    private static List<String> intactTexts(List<TileDecode> tiles, String source) {
+        List<String> texts = new ArrayList<>(tiles.size());
+        for (TileDecode tile : tiles) {
+            if (!isCorrupt(tile.text, source)) {
+                texts.add(tile.text);
+            }
+        }
+        return texts;
+    }
+
+    private static boolean isCorrupt(String text, String source) {
+        if (ChunkIntegrity.isIntact(text.trim())) {
+            return false;
+        }
+        RunMetrics.current().count("decode.crc_rejected");
+        System.out.println("[decode] CRC32C invalido en " + source + ", se descarta el chunk");
+        return true;
+    }
+
+    private static void printJournalStats(int fromJournal, int frameCount) {
+        if (fromJournal == 0) {
+            return;
+        }
+        System.out.println(String.format(Locale.US,
+                "[journal] Frames tomados del journal sin decodificar: %d de %d",
+                fromJournal,
+                frameCount));
+    }
+
+    private static void printRoiStats(RoiTracker roi) {
+        if (roi.hits() + roi.misses() == 0) {
+            return;
+        }
+        System.out.println(String.format(Locale.US,
+                "[decode] ROI: aciertos=%d, busquedas completas tras fallo=%d",
+                roi.hits(),
+                roi.misses()));
+    }
+
+    private static void printPrefilterStats(FinderPatternPrefilter prefilter) {
+        if (!prefilter.enabled()) {
+            return;
+        }
+        System.out.println(String.format(Locale.US,
+                "[decode] Prefiltro de patrones de localizacion: analizados=%d, sin candidatos (decodificacion omitida)=%d",
+                prefilter.checked(),
+                prefilter.rejected()));
+    }
+
+    private static FallbackTiles decodeTilesFromNeighborFrames(
+            Path framePath,
+            List<String> currentTiles,
+            Map<Integer, Path> sourceFramesByNumber,
+            SlideLayout layout,
+            int[] neighborOffsets,
+            RoiTracker roi,
+            FinderPatternPrefilter prefilter,
+            FrameResolver resolver
+    ) throws IOException {
+        if (sourceFramesByNumber.isEmpty()) {
+            return null;
+        }
+
+        int frameNumber = extractFrameNumber(framePath);
+        if (frameNumber < 0) {
+            return null;
+        }
+
+        FallbackTiles best = null;
+        int bestCount = currentTiles.size();
+        for (int offset : neighborOffsets) {
+            Path neighbor = sourceFramesByNumber.get(frameNumber + offset);
+            if (neighbor == null) {
+                continue;
+            }
+            GrayFrame[] neighborPlanes = readPlanes(neighbor, layout, resolver);
+            if (neighborPlanes == null) {
+                continue;
+            }
+            List<String> tiles;
+            try {
+                if (!prefilter.mayContainQr(neighborPlanes[0])) {
+                    continue;
+                }
+                tiles = intactTexts(decodeTilesWithRoi(neighborPlanes, layout, roi), neighbor.getFileName().toString());
+            } finally {
+                GrayFrame.releaseAll(neighborPlanes);
+            }
+            if (tiles.size() > bestCount && tiles.containsAll(currentTiles)) {
+                best = new FallbackTiles(tiles, neighbor, offset);
+                bestCount = tiles.size();
+                if (bestCount >= layout.codesPerSlide()) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static List<TileDecode> decodeTiles(GrayFrame[] planes, SlideLayout layout) {
+        if (planes.length == 1) {
+            return orderByTilePosition(decodeTileCandidates(planes[0], layout, 0));
+        }
+
+        List<CompletableFuture<List<TileDecode>>> pending = new ArrayList<>(planes.length);
+        for (int channel = 0; channel < planes.length; channel++) {
+            GrayFrame plane = planes[channel];
+            int channelIndex = channel;
+            pending.add(CompletableFuture.supplyAsync(
+                    RunMetrics.inheriting(() -> decodeTileCandidates(plane, layout, channelIndex)), CHANNEL_DECODE_POOL));
+        }
+        List<TileDecode> found = new ArrayList<>();
+        for (CompletableFuture<List<TileDecode>> channelResult : pending) {
+            found.addAll(channelResult.join());
+        }
+        return orderByTilePosition(found);
+    }
+
+    private static List<TileDecode> decodeTileCandidates(GrayFrame frame, SlideLayout layout, int channel) {
+        List<TileDecode> found = new ArrayList<>(detectAndDecodeTiles(frame, channel));
+        if (found.size() < layout.tileCount()) {
+            found.addAll(decodeMissingCells(frame, layout.columns(), layout.rows(), channel, found));
+        }
+        return found;
+    }
+
+    private static List<TileDecode> detectAndDecodeTiles(GrayFrame frame, int channel) {
+        LuminanceSource source = frame.luminanceSource();
+        List<TileDecode> best = decodeDetectedTiles(new HybridBinarizer(source), channel, "decode.tiles.binarizer.hybrid");
+        List<TileDecode> global = decodeDetectedTiles(
+                new GlobalHistogramBinarizer(source), channel, "decode.tiles.binarizer.global");
+        return global.size() > best.size() ? global : best;
+    }
+
+    private static List<TileDecode> decodeDetectedTiles(Binarizer binarizer, int channel, String metric) {
+        long start = RunMetrics.start();
+        ReaderEvents.DecodeAttempt event = new ReaderEvents.DecodeAttempt();
+        event.begin();
+        List<TileDecode> tiles = List.of();
+        try {
+            tiles = decodeDetectedTiles(binarizer, channel);
+            return tiles;
+        } finally {
+            RunMetrics.current().stop(metric, start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.region = "tiles";
+                event.cropRatio = 1.0;
+                event.scale = 1.0;
+                event.binarizer = binarizer instanceof HybridBinarizer ? "hybrid" : "global";
+                event.width = binarizer.getWidth();
+                event.height = binarizer.getHeight();
+                event.success = !tiles.isEmpty();
+                event.commit();
+            }
+        }
+    }
+
+    private static List<TileDecode> decodeDetectedTiles(Binarizer binarizer, int channel) {
+        DetectorResult[] detected;
+        try {
+            detected = new MultiDetector(new BinaryBitmap(binarizer).getBlackMatrix()).detectMulti(decodeHints());
+        } catch (NotFoundException ex) {
+            return List.of();
+        }
+
+        List<CompletableFuture<TileDecode>> pending = new ArrayList<>(detected.length);
+        for (DetectorResult result : detected) {
+            pending.add(CompletableFuture.supplyAsync(
+                    RunMetrics.inheriting(() -> decodeDetectedTile(result, channel)), TILE_DECODE_POOL));
+        }
+        return pending.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static TileDecode decodeDetectedTile(DetectorResult detected, int channel) {
+        try {
+            String text = new Decoder().decode(detected.getBits(), decodeHints()).getText();
+            ResultPoint[] points = detected.getPoints();
+            if (text == null || points.length < 3) {
+                return null;
+            }
+            double centerX = (points[0].getX() + points[2].getX()) / 2.0;
+            double centerY = (points[0].getY() + points[2].getY()) / 2.0;
+            double span = ResultPoint.distance(points[1], points[2]);
+            return new TileDecode(text, centerX, centerY, span, channel);
+        } catch (ChecksumException | FormatException ex) {
+            return null;
+        }
+    }
+
+    private static List<TileDecode> decodeMissingCells(
+            GrayFrame frame,
+            int tileColumns,
+            int tileRows,
+            int channel,
+            List<TileDecode> found
+    ) {
+        double scale = Math.min(frame.width() / (double) tileColumns, frame.height() / (double) tileRows);
+        double cellSide = Math.max(1.0, scale);
+        double originX = (frame.width() - cellSide * tileColumns) / 2.0;
+        double originY = (frame.height() - cellSide * tileRows) / 2.0;
+
+        List<CompletableFuture<TileDecode>> pending = new ArrayList<>();
+        for (int row = 0; row < tileRows; row++) {
+            for (int column = 0; column < tileColumns; column++) {
+                double cellX = originX + column * cellSide;
+                double cellY = originY + row * cellSide;
+                if (containsTileCenter(found, cellX, cellY, cellSide)) {
+                    continue;
+                }
+                double margin = cellSide * TILE_CELL_MARGIN;
+                int x = clamp((int) Math.floor(cellX - margin), 0, frame.width() - 1);
+                int y = clamp((int) Math.floor(cellY - margin), 0, frame.height() - 1);
+                int right = clamp((int) Math.ceil(cellX + cellSide + margin), x + 1, frame.width());
+                int bottom = clamp((int) Math.ceil(cellY + cellSide + margin), y + 1, frame.height());
+                GrayFrame cell = frame.crop(x, y, right - x, bottom - y);
+                double centerX = cellX + cellSide / 2.0;
+                double centerY = cellY + cellSide / 2.0;
+                pending.add(CompletableFuture.supplyAsync(RunMetrics.inheriting(() -> {
+                    DecodedQr decoded = decodeQrRobust(cell);
+                    return decoded == null
+                            ? null
+                            : new TileDecode(decoded.text, centerX, centerY, cellSide * TILE_FINDER_SPAN_RATIO, channel);
+                }), TILE_DECODE_POOL));
+            }
+        }
+        // Si el mosaico no llena el frame, una celda vecina vuelve a leer un QR ya detectado.
+        Set<String> seen = new HashSet<>();
+        for (TileDecode tile : found) {
+            seen.add(tile.text);
+        }
+        return pending.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .filter(tile -> seen.add(tile.text))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean containsTileCenter(List<TileDecode> found, double cellX, double cellY, double cellSide) {
+        for (TileDecode tile : found) {
+            if (tile.centerX >= cellX && tile.centerX < cellX + cellSide
+                    && tile.centerY >= cellY && tile.centerY < cellY + cellSide) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<TileDecode> orderByTilePosition(List<TileDecode> tiles) {
+        if (tiles.isEmpty()) {
+            return List.of();
+        }
+        List<TileDecode> byY = new ArrayList<>(tiles);
+        byY.sort(Comparator.comparingDouble(tile -> tile.centerY));
+        List<Double> spans = byY.stream().map(tile -> tile.span).sorted().collect(Collectors.toList());
+        double rowTolerance = Math.max(1.0, spans.get(spans.size() / 2) * 0.5);
+
+        List<TileDecode> ordered = new ArrayList<>(tiles.size());
+        List<TileDecode> row = new ArrayList<>();
+        double rowStartY = byY.get(0).centerY;
+        for (TileDecode tile : byY) {
+            if (tile.centerY - rowStartY > rowTolerance) {
+                appendRow(ordered, row, rowTolerance);
+                row.clear();
+                rowStartY = tile.centerY;
+            }
+            row.add(tile);
+        }
+        appendRow(ordered, row, rowTolerance);
+        return ordered;
+    }
+
+    private static void appendRow(List<TileDecode> ordered, List<TileDecode> row, double columnTolerance) {
+        row.sort(Comparator.comparingDouble(tile -> tile.centerX));
+        List<TileDecode> cell = new ArrayList<>();
+        double cellStartX = row.isEmpty() ? 0.0 : row.get(0).centerX;
+        for (TileDecode tile : row) {
+            if (tile.centerX - cellStartX > columnTolerance) {
+                appendCell(ordered, cell);
+                cell.clear();
+                cellStartX = tile.centerX;
+            }
+            cell.add(tile);
+        }
+        appendCell(ordered, cell);
+    }
+
+    private static void appendCell(List<TileDecode> ordered, List<TileDecode> cell) {
+        cell.sort(Comparator.comparingInt(tile -> tile.channel));
+        ordered.addAll(cell);
+    }
+
+    private static Map<DecodeHintType, Object> decodeHints() {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+        return hints;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    static int[] defaultNeighborOffsets() {
+        return DEFAULT_NEIGHBOR_OFFSETS.clone();
+    }
+
+    static double[] candidateCropRatios() {
+        return CANDIDATE_CROP_RATIOS.clone();
+    }
+
+    static double[] variantScales() {
+        return VARIANT_SCALES.clone();
+    }
+
+    static int[] forwardNeighborOffsets(int count) {
+        int[] offsets = new int[Math.max(0, count)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i + 1;
+        }
+        return offsets;
+    }
+
     private static Map<Integer, Path> indexFramesByNumber(List<Path> sourceFrames) {
         Map<Integer, Path> byNumber = new HashMap<>();
         if (sourceFrames == null) {
@@ -99,8 +737,14 @@ final class QrFrameReader {
         return byNumber;
     }
 
-    private static FallbackDecode decodeFromNeighborFrames(Path framePath, Map<Integer, Path> sourceFramesByNumber)
-            throws IOException {
+    private static FallbackDecode decodeFromNeighborFrames(
+            Path framePath,
+            Map<Integer, Path> sourceFramesByNumber,
+            int[] neighborOffsets,
+            RoiTracker roi,
+            FinderPatternPrefilter prefilter,
+            FrameResolver resolver
+    ) throws IOException {
         if (sourceFramesByNumber.isEmpty()) {
             return null;
         }
@@ -110,24 +754,29 @@ final class QrFrameReader {
             return null;
         }
 
-        for (int offset : NEIGHBOR_OFFSETS) {
+        for (int offset : neighborOffsets) {
             Path neighbor = sourceFramesByNumber.get(frameNumber + offset);
             if (neighbor == null) {
                 continue;
             }
-            BufferedImage neighborImage = ImageIO.read(neighbor.toFile());
-            if (neighborImage == null) {
+            GrayFrame neighborFrame = readFrame(neighbor, resolver);
+            if (neighborFrame == null) {
                 continue;
             }
-            String decoded = decodeQrRobust(neighborImage);
-            if (decoded != null) {
-                return new FallbackDecode(decoded, neighbor, offset);
+            DecodedQr decoded;
+            try {
+                decoded = prefilter.mayContainQr(neighborFrame) ? decodeWithRoi(neighborFrame, roi) : null;
+            } finally {
+                neighborFrame.release();
+            }
+            if (decoded != null && !isCorrupt(decoded.text, neighbor.getFileName().toString())) {
+                return new FallbackDecode(decoded.text, neighbor, offset);
             }
         }
         return null;
     }
 
-    private static int extractFrameNumber(Path path) {
+    static int extractFrameNumber(Path path) {
         if (path == null || path.getFileName() == null) {
             return -1;
         }
@@ -143,10 +792,10 @@ final class QrFrameReader {
         }
     }
 
-    private static String decodeQrRobust(BufferedImage image) {
-        List<BufferedImage> candidates = buildDecodeCandidates(image);
-        for (BufferedImage candidate : candidates) {
-            String decoded = decodeQr(candidate);
+    static DecodedQr decodeQrRobust(GrayFrame frame) {
+        List<DecodeCandidate> candidates = buildDecodeCandidates(frame);
+        for (DecodeCandidate candidate : candidates) {
+            DecodedQr decoded = decodeQr(candidate);
             if (decoded != null) {
                 return decoded;
             }
@@ -154,59 +803,86 @@ final class QrFrameReader {
         return null;
     }
 
-    private static String decodeQr(BufferedImage image) {
-        List<BufferedImage> variants = buildVariants(image);
-        for (BufferedImage variant : variants) {
-            String decoded = decodeVariant(variant);
-            if (decoded != null) {
-                return decoded;
+    private static DecodedQr decodeQr(DecodeCandidate candidate) {
+        for (double scale : VARIANT_SCALES) {
+            GrayFrame variant = scale == 1.0 ? candidate.frame : candidate.frame.scale(scale);
+            Result result = decodeVariant(variant, candidate.region, candidate.cropRatio, scale);
+            if (result != null) {
+                return DecodedQr.from(result, scale, candidate.offsetX, candidate.offsetY);
             }
         }
         return null;
     }
 
-    private static String decodeVariant(BufferedImage image) {
+    static Result decodeVariant(GrayFrame frame) {
+        return decodeVariant(frame, "frame", 1.0, 1.0);
+    }
+
+    private static Result decodeVariant(GrayFrame frame, String region, double cropRatio, double scale) {
         MultiFormatReader reader = new MultiFormatReader();
-        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
-        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+        Map<DecodeHintType, Object> hints = decodeHints();
 
-        LuminanceSource source = new BufferedImageLuminanceSource(image);
+        LuminanceSource source = frame.luminanceSource();
         BinaryBitmap hybrid = new BinaryBitmap(new HybridBinarizer(source));
-        Result result = tryDecode(reader, hybrid, hints);
+        Result result = tryDecode(reader, hybrid, hints, "hybrid", newAttempt(frame, region, cropRatio, scale));
         if (result != null) {
-            return result.getText();
+            return result;
         }
 
         BinaryBitmap global = new BinaryBitmap(new GlobalHistogramBinarizer(source));
-        result = tryDecode(reader, global, hints);
+        result = tryDecode(reader, global, hints, "global", newAttempt(frame, region, cropRatio, scale));
         if (result != null) {
-            return result.getText();
+            return result;
         }
 
         BinaryBitmap inverted = new BinaryBitmap(new HybridBinarizer(source.invert()));
-        result = tryDecode(reader, inverted, hints);
-        return result == null ? null : result.getText();
+        return tryDecode(reader, inverted, hints, "inverted", newAttempt(frame, region, cropRatio, scale));
     }
 
-    private static Result tryDecode(MultiFormatReader reader, BinaryBitmap bitmap, Map<DecodeHintType, Object> hints) {
+    private static ReaderEvents.DecodeAttempt newAttempt(GrayFrame frame, String region, double cropRatio, double scale) {
+        ReaderEvents.DecodeAttempt event = new ReaderEvents.DecodeAttempt();
+        event.region = region;
+        event.cropRatio = cropRatio;
+        event.scale = scale;
+        event.width = frame.width();
+        event.height = frame.height();
+        return event;
+    }
+
+    private static Result tryDecode(
+            MultiFormatReader reader,
+            BinaryBitmap bitmap,
+            Map<DecodeHintType, Object> hints,
+            String binarizer,
+            ReaderEvents.DecodeAttempt event
+    ) {
+        String metric = "decode.binarizer." + binarizer;
+        long start = RunMetrics.start();
+        event.begin();
         try {
-            return reader.decode(bitmap, hints);
+            Result result = reader.decode(bitmap, hints);
+            RunMetrics.current().count(metric + ".hits");
+            event.success = true;
+            return result;
         } catch (NotFoundException ex) {
             return null;
         } finally {
             reader.reset();
+            RunMetrics.current().stop(metric, start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.binarizer = binarizer;
+                event.commit();
+            }
         }
     }
 
-    private static List<BufferedImage> buildDecodeCandidates(BufferedImage image) {
-        List<BufferedImage> candidates = new ArrayList<>();
-        candidates.add(image);
+    private static List<DecodeCandidate> buildDecodeCandidates(GrayFrame frame) {
+        List<DecodeCandidate> candidates = new ArrayList<>();
+        candidates.add(new DecodeCandidate(frame, 0, 0, "frame", 1.0));
 
-        double[] ratios = {0.95, 0.90, 0.85, 0.80, 0.70};
-        for (double ratio : ratios) {
-            BufferedImage crop = centerSquareCrop(image, ratio);
+        for (double ratio : CANDIDATE_CROP_RATIOS) {
+            DecodeCandidate crop = centerSquareCrop(frame, ratio);
             if (crop != null) {
                 candidates.add(crop);
             }
@@ -214,48 +890,108 @@ final class QrFrameReader {
         return candidates;
     }
 
-    private static List<BufferedImage> buildVariants(BufferedImage image) {
-        List<BufferedImage> variants = new ArrayList<>();
-        variants.add(image);
-        variants.add(scaleImage(image, 1.5));
-        variants.add(scaleImage(image, 2.0));
-        return variants;
-    }
-
-    private static BufferedImage centerSquareCrop(BufferedImage image, double sideRatio) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private static DecodeCandidate centerSquareCrop(GrayFrame frame, double sideRatio) {
+        int width = frame.width();
+        int height = frame.height();
         int side = (int) Math.round(Math.min(width, height) * sideRatio);
         if (side < 32) {
             return null;
         }
-        int x = (width - side) / 2;
-        int y = (height - side) / 2;
-        return image.getSubimage(Math.max(0, x), Math.max(0, y), Math.min(side, width), Math.min(side, height));
+        int x = Math.max(0, (width - side) / 2);
+        int y = Math.max(0, (height - side) / 2);
+        GrayFrame crop = frame.crop(x, y, Math.min(side, width), Math.min(side, height));
+        return new DecodeCandidate(crop, x, y, "center", sideRatio);
     }
 
-    private static BufferedImage scaleImage(BufferedImage image, double factor) {
-        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
-        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
-        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = scaled.createGraphics();
-        try {
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g2d.drawImage(image, 0, 0, targetWidth, targetHeight, null);
-        } finally {
-            g2d.dispose();
-        }
-        return scaled;
-    }
-
-    private static boolean isWarmupPayload(String text) {
+    static boolean isWarmupPayload(String text) {
         if (text == null) {
             return false;
         }
         return WARMUP_PAYLOAD.equals(text.trim());
     }
 
+    private static final class DecodeCandidate {
+        private final GrayFrame frame;
+        private final int offsetX;
+        private final int offsetY;
+        private final String region;
+        private final double cropRatio;
+
+        private DecodeCandidate(GrayFrame frame, int offsetX, int offsetY, String region, double cropRatio) {
+            this.frame = frame;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.region = region;
+            this.cropRatio = cropRatio;
+        }
+    }
+
+    static final class DecodedQr {
+        private final String text;
+        private final Rectangle bounds;
+
+        private DecodedQr(String text, Rectangle bounds) {
+            this.text = text;
+            this.bounds = bounds;
+        }
+
+        private static DecodedQr from(Result result, double scale, int offsetX, int offsetY) {
+            ResultPoint[] points = result.getResultPoints();
+            Rectangle bounds = null;
+            if (points != null) {
+                double minX = Double.MAX_VALUE;
+                double minY = Double.MAX_VALUE;
+                double maxX = -Double.MAX_VALUE;
+                double maxY = -Double.MAX_VALUE;
+                for (ResultPoint point : points) {
+                    if (point == null) {
+                        continue;
+                    }
+                    minX = Math.min(minX, point.getX());
+                    minY = Math.min(minY, point.getY());
+                    maxX = Math.max(maxX, point.getX());
+                    maxY = Math.max(maxY, point.getY());
+                }
+                if (maxX >= minX && maxY >= minY) {
+                    bounds = new Rectangle(
+                            offsetX + (int) Math.floor(minX / scale),
+                            offsetY + (int) Math.floor(minY / scale),
+                            (int) Math.ceil((maxX - minX) / scale) + 1,
+                            (int) Math.ceil((maxY - minY) / scale) + 1);
+                }
+            }
+            return new DecodedQr(result.getText(), bounds);
+        }
+    }
+
+    private static final class TileDecode {
+        private final String text;
+        private final double centerX;
+        private final double centerY;
+        private final double span;
+        private final int channel;
+
+        private TileDecode(String text, double centerX, double centerY, double span, int channel) {
+            this.text = text;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.span = span;
+            this.channel = channel;
+        }
+    }
+
+    private static final class FallbackTiles {
+        private final List<String> tiles;
+        private final Path sourceFrame;
+        private final int offset;
+
+        private FallbackTiles(List<String> tiles, Path sourceFrame, int offset) {
+            this.tiles = tiles;
+            this.sourceFrame = sourceFrame;
+            this.offset = offset;
+        }
+    }
+
     private static final class FallbackDecode {
         private final String decodedText;
         private final Path sourceFrame;
@@ -0,0 +1,105 @@
+package app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+final class ReaderEvents {
+    private ReaderEvents() {
+    }
+
+    @Name("app.reader.FrameExtracted")
+    @Label("Frame extraido")
+    @Description("Frame leido a memoria desde PNG o desde el pipe de ffmpeg")
+    @Category({"QR Reader", "Frames"})
+    @StackTrace(false)
+    static final class FrameExtracted extends Event {
+        @Label("Frame")
+        String frame;
+
+        @Label("Origen")
+        String source;
+
+        @Label("Ancho")
+        int width;
+
+        @Label("Alto")
+        int height;
+    }
+
+    @Name("app.reader.SignatureComputed")
+    @Label("Firma calculada")
+    @Category({"QR Reader", "Deteccion"})
+    @StackTrace(false)
+    static final class SignatureComputed extends Event {
+        @Label("Tamano de analisis")
+        int analysisSize;
+    }
+
+    @Name("app.reader.ChangeDetected")
+    @Label("Cambio detectado")
+    @Category({"QR Reader", "Deteccion"})
+    @StackTrace(false)
+    static final class ChangeDetected extends Event {
+        @Label("Numero de cambio")
+        int change;
+
+        @Label("Frame")
+        String frame;
+
+        @Label("Diferencia")
+        double diff;
+
+        @Label("Threshold")
+        double threshold;
+    }
+
+    @Name("app.reader.DecodeAttempt")
+    @Label("Intento de decodificacion")
+    @Description("Una pasada de ZXing sobre un recorte, una escala y un binarizador")
+    @Category({"QR Reader", "Decodificacion"})
+    @StackTrace(false)
+    static final class DecodeAttempt extends Event {
+        @Label("Region")
+        String region;
+
+        @Label("Recorte")
+        double cropRatio;
+
+        @Label("Escala")
+        double scale;
+
+        @Label("Binarizador")
+        String binarizer;
+
+        @Label("Ancho")
+        int width;
+
+        @Label("Alto")
+        int height;
+
+        @Label("Exito")
+        boolean success;
+    }
+
+    @Name("app.reader.ChunkAssembled")
+    @Label("Chunk ensamblado")
+    @Category({"QR Reader", "Payload"})
+    @StackTrace(false)
+    static final class ChunkAssembled extends Event {
+        @Label("Indice")
+        int index;
+
+        @Label("Total")
+        int total;
+
+        @Label("Caracteres")
+        int length;
+
+        @Label("Duplicado")
+        boolean duplicate;
+    }
+}
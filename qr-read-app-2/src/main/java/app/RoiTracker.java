@@ -0,0 +1,72 @@
+package app;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+
+final class RoiTracker {
+    private static final int HISTORY = 4;
+    private static final double MARGIN_RATIO = 0.35;
+    private static final double MAX_FRAME_COVERAGE = 0.8;
+
+    private final ArrayDeque<Rectangle> recent = new ArrayDeque<>();
+    private int frameWidth;
+    private int frameHeight;
+    private int hits;
+    private int misses;
+
+    Rectangle searchRegion(int width, int height) {
+        if (recent.isEmpty() || width != frameWidth || height != frameHeight) {
+            return null;
+        }
+
+        Rectangle union = null;
+        for (Rectangle box : recent) {
+            union = union == null ? new Rectangle(box) : union.union(box);
+        }
+        int marginX = (int) Math.round(union.width * MARGIN_RATIO);
+        int marginY = (int) Math.round(union.height * MARGIN_RATIO);
+        Rectangle expanded = new Rectangle(
+                union.x - marginX,
+                union.y - marginY,
+                union.width + marginX * 2,
+                union.height + marginY * 2);
+        Rectangle clipped = expanded.intersection(new Rectangle(0, 0, width, height));
+        if (clipped.isEmpty() || clipped.width < 32 || clipped.height < 32) {
+            return null;
+        }
+        double coverage = (clipped.width * (double) clipped.height) / (width * (double) height);
+        return coverage > MAX_FRAME_COVERAGE ? null : clipped;
+    }
+
+    void record(Rectangle bounds, int width, int height) {
+        if (bounds == null || bounds.isEmpty()) {
+            return;
+        }
+        if (width != frameWidth || height != frameHeight) {
+            recent.clear();
+            frameWidth = width;
+            frameHeight = height;
+        }
+        recent.addLast(new Rectangle(bounds));
+        while (recent.size() > HISTORY) {
+            recent.removeFirst();
+        }
+    }
+
+    void recordHit(Rectangle bounds, int width, int height) {
+        hits++;
+        record(bounds, width, height);
+    }
+
+    void recordMiss() {
+        misses++;
+    }
+
+    int hits() {
+        return hits;
+    }
+
+    int misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,171 @@
+package app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+final class RunMetrics {
+    private static final RunMetrics PROCESS = new RunMetrics();
+    private static final ThreadLocal<RunMetrics> BOUND = new ThreadLocal<>();
+    private static final int BUCKETS = 40;
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99};
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    RunMetrics() {
+    }
+
+    /** Metricas de la corrida del hilo actual; fuera de un job del daemon son las del proceso. */
+    static RunMetrics current() {
+        RunMetrics bound = BOUND.get();
+        return bound == null ? PROCESS : bound;
+    }
+
+    static void bind(RunMetrics metrics) {
+        if (metrics == null) {
+            BOUND.remove();
+        } else {
+            BOUND.set(metrics);
+        }
+    }
+
+    /** Ejecuta la tarea en un hilo de un pool compartido acumulando en las metricas de quien la encola. */
+    static <T> Supplier<T> inheriting(Supplier<T> task) {
+        RunMetrics owner = current();
+        return () -> {
+            RunMetrics previous = BOUND.get();
+            bind(owner);
+            try {
+                return task.get();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    static long start() {
+        return System.nanoTime();
+    }
+
+    void stop(String name, long startNanos) {
+        record(name, System.nanoTime() - startNanos);
+    }
+
+    void record(String name, long nanos) {
+        timers.computeIfAbsent(name, ignored -> new Timer()).record(nanos);
+    }
+
+    void count(String name) {
+        count(name, 1);
+    }
+
+    void count(String name, long delta) {
+        counters.computeIfAbsent(name, ignored -> new LongAdder()).add(delta);
+    }
+
+    long timerCount(String name) {
+        Timer timer = timers.get(name);
+        return timer == null ? 0 : timer.count.sum();
+    }
+
+    long counter(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    static Path reportPathFor(Path outputFile) {
+        String name = outputFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return outputFile.resolveSibling(base + ".metrics.json");
+    }
+
+    Path writeReport(Path outputFile, Map<String, Object> run) throws IOException {
+        Path report = reportPathFor(outputFile);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("version", 1);
+        root.put("startedAt", startedAt.toString());
+        root.put("finishedAt", Instant.now().toString());
+        root.put("wallMs", millis(System.nanoTime() - startNanos));
+        root.put("run", run);
+
+        Map<String, Object> timerReport = new LinkedHashMap<>();
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            timerReport.put(entry.getKey(), entry.getValue().toReport());
+        }
+        root.put("timers", timerReport);
+
+        Map<String, Object> counterReport = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            counterReport.put(entry.getKey(), entry.getValue().sum());
+        }
+        root.put("counters", counterReport);
+
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write(Json.write(root) + '\n');
+        }
+        return report;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /** Histograma en cubetas de potencias de dos de microsegundos; los percentiles son la cota superior de la cubeta. */
+    private static final class Timer {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        private void record(long nanos) {
+            long micros = Math.max(0L, nanos / 1_000L);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private Map<String, Object> toReport() {
+            long samples = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("count", samples);
+            report.put("totalMs", millis(total));
+            report.put("meanMs", samples == 0 ? 0.0 : millis(total / samples));
+            for (double percentile : PERCENTILES) {
+                report.put(String.format(Locale.US, "p%02.0fMs", percentile * 100.0), percentileMillis(samples, percentile));
+            }
+            report.put("maxMs", millis(maxNanos.get()));
+            return report;
+        }
+
+        private double percentileMillis(long samples, double percentile) {
+            long rank = (long) Math.ceil(samples * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(millis(maxNanos.get()), (1L << bucket) / 1_000.0);
+                }
+            }
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package app;
+
+final class SlideLayout {
+    private static final int COLOR_CHANNELS = 3;
+    private static final SlideLayout SINGLE = new SlideLayout(1, 1, 1);
+
+    private final int columns;
+    private final int rows;
+    private final int channels;
+
+    private SlideLayout(int columns, int rows, int channels) {
+        this.columns = columns;
+        this.rows = rows;
+        this.channels = channels;
+    }
+
+    static SlideLayout single() {
+        return SINGLE;
+    }
+
+    static SlideLayout of(int columns, int rows, boolean colorChannels) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("El mosaico requiere columnas y filas > 0");
+        }
+        return new SlideLayout(columns, rows, colorChannels ? COLOR_CHANNELS : 1);
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int channels() {
+        return channels;
+    }
+
+    int tileCount() {
+        return columns * rows;
+    }
+
+    int codesPerSlide() {
+        return tileCount() * channels;
+    }
+
+    boolean isSingleCode() {
+        return codesPerSlide() == 1;
+    }
+
+    @Override
+    public String toString() {
+        return channels > 1 ? columns + "x" + rows + " RGB" : columns + "x" + rows;
+    }
+}
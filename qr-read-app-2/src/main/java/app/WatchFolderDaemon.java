@@ -0,0 +1,273 @@
+package app;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modo daemon: vigila una carpeta de entrada y procesa cada video nuevo como un job independiente
+ * dentro de la misma JVM. Los jobs comparten los pools de decodificacion de {@link QrFrameReader};
+ * cada uno escribe en su propia subcarpeta de --zips y --frames y tiene sus propias metricas.
+ */
+final class WatchFolderDaemon {
+    private static final long STABLE_MILLIS = 2_000L;
+    private static final long POLL_MILLIS = 500L;
+    private static final String DONE_DIR = "done";
+    private static final String FAILED_DIR = "failed";
+
+    private final AppConfig config;
+    private final Path inbox;
+    private final Path doneDir;
+    private final Path failedDir;
+    private final ExecutorService jobs;
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<Path> scheduled = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final PrintStream console;
+
+    private WatchFolderDaemon(AppConfig config) {
+        this.config = config;
+        this.inbox = config.watchDir().toAbsolutePath().normalize();
+        this.doneDir = inbox.resolve(DONE_DIR);
+        this.failedDir = inbox.resolve(FAILED_DIR);
+        this.jobs = Executors.newFixedThreadPool(config.jobs(), new JobThreadFactory());
+        FrameBufferPool.shared().reserveForJobs(config.jobs());
+        this.console = System.out;
+    }
+
+    static void run(AppConfig config) throws IOException, InterruptedException {
+        new WatchFolderDaemon(config).watch();
+    }
+
+    private void watch() throws IOException, InterruptedException {
+        Files.createDirectories(inbox);
+        Files.createDirectories(doneDir);
+        Files.createDirectories(failedDir);
+        Files.createDirectories(config.zipsOutputDir());
+
+        PrintStream originalErr = System.err;
+        System.setOut(JobOutput.routed(console));
+        System.setErr(JobOutput.routed(originalErr));
+
+        WatchService watcher = inbox.getFileSystem().newWatchService();
+        Thread mainThread = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            console.println("[watch] Deteniendo: los videos en curso quedan en la carpeta y se reanudan con el journal");
+            jobs.shutdownNow();
+            try {
+                watcher.close();
+                mainThread.join(10_000L);
+            } catch (IOException | InterruptedException ignored) {
+                // El proceso ya esta terminando.
+            }
+        }, "qr-watch-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        console.println(String.format(Locale.US,
+                "[watch] Vigilando %s con %d jobs en paralelo; salida en %s (Ctrl+C para terminar)",
+                inbox, config.jobs(), config.zipsOutputDir().toAbsolutePath()));
+        try {
+            inbox.register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            scanInbox();
+            while (!jobs.isShutdown()) {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scanInbox();
+                        } else {
+                            offer(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        throw new IOException("La carpeta vigilada ya no es accesible: " + inbox);
+                    }
+                }
+                scheduleStableFiles();
+            }
+        } catch (ClosedWatchServiceException ex) {
+            // Cierre ordenado desde el hook de apagado.
+        } finally {
+            jobs.shutdownNow();
+            jobs.awaitTermination(10, TimeUnit.SECONDS);
+            System.setOut(console);
+            System.setErr(originalErr);
+            console.println(String.format(Locale.US,
+                    "[watch] Fin: %d videos procesados, %d fallidos", finished.get(), failed.get()));
+        }
+    }
+
+    private void scanInbox() throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(inbox)) {
+            for (Path entry : entries) {
+                offer(entry);
+            }
+        }
+    }
+
+    private void offer(Path file) {
+        if (isVideo(file) && !scheduled.contains(file)) {
+            pending.putIfAbsent(file, new Pending());
+        }
+    }
+
+    /** ffmpeg no puede leer un video a medio copiar: se espera a que tamano y fecha no cambien por un rato. */
+    private void scheduleStableFiles() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Path, Pending> entry : pending.entrySet()) {
+            Path file = entry.getKey();
+            Pending state = entry.getValue();
+            long size;
+            FileTime modified;
+            try {
+                size = Files.size(file);
+                modified = Files.getLastModifiedTime(file);
+            } catch (IOException ex) {
+                pending.remove(file);
+                continue;
+            }
+            if (size != state.size || !modified.equals(state.modified)) {
+                state.size = size;
+                state.modified = modified;
+                state.since = now;
+                continue;
+            }
+            if (size > 0 && now - state.since >= STABLE_MILLIS && scheduled.add(file)) {
+                pending.remove(file);
+                jobs.execute(() -> process(file));
+            }
+        }
+    }
+
+    private void process(Path video) {
+        String name = video.getFileName().toString();
+        // a.mp4 y a.mov pueden correr a la vez: la carpeta lleva el nombre completo y un sufijo propio del job.
+        String jobDir = name + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path jobZips = config.zipsOutputDir().resolve(jobDir);
+        Path jobFrames = config.framesOutputDir().resolve(jobDir);
+        AppConfig jobConfig = config.forJob(video, jobFrames, jobZips);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean cpuTime = threads.isCurrentThreadCpuTimeSupported();
+        long cpuStart = cpuTime ? threads.getCurrentThreadCpuTime() : 0L;
+        long wallStart = System.nanoTime();
+        console.println("[watch] Procesando " + name + " en " + Thread.currentThread().getName());
+
+        PayloadZipService.PayloadBuildResult result = null;
+        Exception error = null;
+        RunMetrics.bind(new RunMetrics());
+        try {
+            Files.createDirectories(jobZips);
+            JobOutput output = JobOutput.open(jobZips.resolve("run.log"));
+            try {
+                result = QrFrameChangeDetectorApp.run(jobConfig);
+            } catch (Exception ex) {
+                error = ex;
+                System.err.println("Error: " + ex.getMessage());
+            } finally {
+                output.close();
+            }
+        } catch (IOException ex) {
+            error = ex;
+        } finally {
+            RunMetrics.bind(null);
+        }
+
+        double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+        String cpu = cpuTime
+                ? String.format(Locale.US, ", cpu del job %.1f s", (threads.getCurrentThreadCpuTime() - cpuStart) / 1_000_000_000.0)
+                : "";
+        if (Thread.currentThread().isInterrupted() || jobs.isShutdown()) {
+            console.println("[watch] Interrumpido " + name + "; queda en la carpeta de entrada");
+            return;
+        }
+        try {
+            if (error == null) {
+                Path moved = moveUnique(video, doneDir);
+                finished.incrementAndGet();
+                console.println(String.format(Locale.US, "[watch] OK %s -> %s (%.1f s%s) => %s",
+                        name, result.outputPath().toAbsolutePath(), wallSeconds, cpu, inbox.relativize(moved)));
+            } else {
+                Path moved = moveUnique(video, failedDir);
+                Files.writeString(failedDir.resolve(moved.getFileName() + ".error.txt"),
+                        describe(error) + System.lineSeparator(), StandardCharsets.UTF_8);
+                failed.incrementAndGet();
+                console.println(String.format(Locale.US, "[watch] FALLO %s (%.1f s%s): %s => %s",
+                        name, wallSeconds, cpu, error.getMessage(), inbox.relativize(moved)));
+            }
+        } catch (IOException ex) {
+            console.println("[watch] No se pudo mover " + name + ": " + ex.getMessage());
+        } finally {
+            scheduled.remove(video);
+        }
+    }
+
+    /** Sin ATOMIC_MOVE: un rename atomico reemplaza el destino en silencio en vez de fallar. */
+    private static Path moveUnique(Path file, Path targetDir) throws IOException {
+        String name = file.getFileName().toString();
+        String base = FileUtils.baseName(name);
+        String extension = name.substring(base.length());
+        Path target = targetDir.resolve(name);
+        for (int attempt = 1; ; attempt++) {
+            if (!Files.exists(target)) {
+                try {
+                    return Files.move(file, target);
+                } catch (FileAlreadyExistsException ex) {
+                    // Otro job tomo el nombre entre la revision y el move.
+                }
+            }
+            target = targetDir.resolve(base + "-" + attempt + extension);
+        }
+    }
+
+    private static String describe(Exception error) {
+        String message = error.getMessage();
+        return error.getClass().getSimpleName() + (message == null ? "" : ": " + message);
+    }
+
+    private static boolean isVideo(Path file) {
+        return Files.isRegularFile(file) && FileUtils.hasVideoExtension(file.getFileName().toString());
+    }
+
+    private static final class Pending {
+        private long size = -1L;
+        private FileTime modified;
+        private long since;
+    }
+
+    private static final class JobThreadFactory implements ThreadFactory {
+        private final AtomicInteger next = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "qr-watch-job-" + next.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}